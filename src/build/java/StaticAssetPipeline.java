@@ -0,0 +1,135 @@
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Build step for the web UI (run by the pom in process-resources, as a single-file Java program):
+// src/main/ui -> target/classes/static.
+// - every file but index.html goes to assets/, its name fingerprinted with a hash of its content
+//   (app.css -> assets/app.3f9c1a2b7d4e.css), so it can be cached forever: a change is a new URL
+// - index.html gets its references ("app.css", "app.js") rewritten to the fingerprinted names
+// - everything gets a .gz (level 9) and a .br (quality 11) sibling, compressed once here instead of on every
+//   request; Spring's EncodedResourceResolver serves them. A variant that isn't smaller is not written
+// Usage: StaticAssetPipeline <source dir> <output dir>
+public final class StaticAssetPipeline {
+
+    private static final String ENTRY_PAGE = "index.html";
+    private static final String ASSETS_DIR = "assets";
+
+    private StaticAssetPipeline() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: StaticAssetPipeline <source dir> <output dir>");
+            System.exit(2);
+        }
+        Path source = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        boolean brotli = Brotli4jLoader.isAvailable();
+        if (!brotli) {
+            System.err.println("[static-assets] brotli is not available on this platform: writing .gz files only");
+        }
+
+        // Old fingerprints would otherwise pile up between builds without a clean
+        deleteRecursively(output);
+        Files.createDirectories(output.resolve(ASSETS_DIR));
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(source)) {
+            files = list.filter(Files::isRegularFile).sorted().toList();
+        }
+        Map<String, String> fingerprinted = new LinkedHashMap<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.equals(ENTRY_PAGE)) {
+                continue;
+            }
+            byte[] content = Files.readAllBytes(file);
+            String target = ASSETS_DIR + "/" + fingerprint(name, content);
+            write(output.resolve(target), content, brotli);
+            fingerprinted.put(name, target);
+        }
+
+        String page = Files.readString(source.resolve(ENTRY_PAGE), StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> asset : fingerprinted.entrySet()) {
+            String reference = "=\"" + asset.getKey() + "\"";
+            if (!page.contains(reference)) {
+                throw new IllegalStateException(ENTRY_PAGE + " does not reference " + asset.getKey());
+            }
+            page = page.replace(reference, "=\"/" + asset.getValue() + "\"");
+        }
+        write(output.resolve(ENTRY_PAGE), page.getBytes(StandardCharsets.UTF_8), brotli);
+
+        System.out.println("[static-assets] " + output + ": " + ENTRY_PAGE + ", " + String.join(", ", fingerprinted.values()));
+    }
+
+    // app.js -> app.<first 12 hex digits of the SHA-256>.js
+    private static String fingerprint(String name, byte[] content) {
+        String hash;
+        try {
+            hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)).substring(0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name + "." + hash : name.substring(0, dot) + "." + hash + name.substring(dot);
+    }
+
+    private static void write(Path file, byte[] content, boolean brotli) throws IOException {
+        Files.write(file, content);
+        writeIfSmaller(file.resolveSibling(file.getFileName() + ".gz"), gzip(content), content.length);
+        if (brotli) {
+            writeIfSmaller(file.resolveSibling(file.getFileName() + ".br"),
+                    Encoder.compress(content, new Encoder.Parameters().setQuality(11)), content.length);
+        }
+    }
+
+    private static void writeIfSmaller(Path file, byte[] compressed, int originalLength) throws IOException {
+        if (compressed.length < originalLength) {
+            Files.write(file, compressed);
+        }
+    }
+
+    // GZIPOutputStream leaves the header's timestamp at 0, so the same input always gives the same file
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new BestGZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static final class BestGZIPOutputStream extends GZIPOutputStream {
+        BestGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
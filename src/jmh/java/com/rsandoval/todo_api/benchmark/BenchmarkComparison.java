@@ -0,0 +1,71 @@
+package com.rsandoval.todo_api.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Compares two JMH JSON result files (a recorded baseline and the latest run) benchmark by benchmark,
+// and exits with 1 if anything got slower than the threshold (in percent), so it can fail a build.
+// Usage: BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]
+public final class BenchmarkComparison {
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-75s %12s %12s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue().get("primaryMetric");
+            JsonNode before = baseline.containsKey(entry.getKey()) ? baseline.get(entry.getKey()).get("primaryMetric") : null;
+            String unit = now.get("scoreUnit").asText();
+            if (before == null) {
+                System.out.printf("%-75s %12s %12.3f %9s  (new) %s%n", entry.getKey(), "-", now.get("score").asDouble(), "", unit);
+                continue;
+            }
+            double oldScore = before.get("score").asDouble();
+            double newScore = now.get("score").asDouble();
+            // Time per op: higher is worse. Throughput (ops per time): lower is worse
+            boolean higherIsWorse = !unit.startsWith("ops/");
+            double change = (newScore - oldScore) / oldScore * 100;
+            double worse = higherIsWorse ? change : -change;
+            boolean regression = worse > threshold;
+            if (regression) regressions++;
+            System.out.printf("%-75s %12.3f %12.3f %+8.1f%%  %s%s%n", entry.getKey(), oldScore, newScore, change, unit,
+                    regression ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+        System.out.printf("No regressions above %.0f%%%n", threshold);
+    }
+
+    // Keyed by benchmark method plus its parameters, e.g. "...TaskSerializationBenchmark.toBytes size=1000"
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText());
+            JsonNode params = result.get("params");
+            if (params != null) {
+                params.fields().forEachRemaining(param ->
+                        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
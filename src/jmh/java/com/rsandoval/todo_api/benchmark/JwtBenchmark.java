@@ -0,0 +1,67 @@
+package com.rsandoval.todo_api.benchmark;
+
+import com.rsandoval.todo_api.config.AuthenticatedUser;
+import com.rsandoval.todo_api.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// JwtService on its own: issuing a token (login) and checking one (every other request).
+// "Cached" is the normal case of a client re-sending the same token; "uncached" is the first
+// time a token is seen, with the full base64 + HMAC + JSON parse.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtService jwtService;
+    private AuthenticatedUser user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // Falls back to its built-in test key, like in the unit tests
+        jwtService = new JwtService();
+        user = new AuthenticatedUser(42L, "benchmark", null, "USER");
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername_cached() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractUsername_uncached() {
+        jwtService.getTokenCache().clear();
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid_cached() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public boolean isTokenValid_uncached() {
+        jwtService.getTokenCache().clear();
+        return jwtService.isTokenValid(token, user);
+    }
+}
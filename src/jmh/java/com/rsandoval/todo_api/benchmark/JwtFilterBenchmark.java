@@ -0,0 +1,82 @@
+package com.rsandoval.todo_api.benchmark;
+
+import com.rsandoval.todo_api.config.AuthenticatedUser;
+import com.rsandoval.todo_api.config.JwtAuthenticationFilter;
+import com.rsandoval.todo_api.service.JwtService;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// The whole JwtAuthenticationFilter, as it runs in front of every API request.
+// "withIdClaims" is a token from /api/auth/login (user resolved from the token alone);
+// "legacy" is a token without them, which falls back to the UserDetailsService
+// (an in-memory stub here, so the numbers don't include the database).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtFilterBenchmark {
+
+    private JwtAuthenticationFilter filter;
+    private String tokenWithIdClaims;
+    private String legacyToken;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = new JwtService();
+        UserDetails legacyUser = User.withUsername("legacy").password("irrelevant").roles("USER").build();
+        UserDetailsService userDetailsService = username -> legacyUser;
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService);
+        tokenWithIdClaims = jwtService.generateToken(new AuthenticatedUser(42L, "benchmark", null, "USER"));
+        legacyToken = jwtService.generateToken(legacyUser);
+    }
+
+    @Benchmark
+    public Authentication withIdClaims() throws ServletException, IOException {
+        return authenticate(tokenWithIdClaims);
+    }
+
+    @Benchmark
+    public Authentication legacy() throws ServletException, IOException {
+        return authenticate(legacyToken);
+    }
+
+    @Benchmark
+    public Authentication noToken() throws ServletException, IOException {
+        return authenticate(null);
+    }
+
+    private Authentication authenticate(String token) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks");
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.rsandoval.todo_api.benchmark;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsandoval.todo_api.dto.TaskView;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// A page of GET /api/tasks in every format (Accept) and content encoding (Accept-Encoding) the API offers,
+// with the settings ResponseCompressionFilter uses (gzip level 6, brotli quality 4).
+// Besides the time, each result has a "payloadBytes" secondary metric: the size of one encoded response.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskEncodingBenchmark {
+
+    @Param({"100", "500", "10000"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"identity", "gzip", "br"})
+    public String encoding;
+
+    private ObjectMapper objectMapper;
+    private List<TaskView> tasks;
+    private Encoder.Parameters brotliParameters;
+
+    // JMH reads the field at the end of each iteration: set to the size of the last response, it reports just that
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Payload {
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            payloadBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // Built the way Spring MVC builds the mappers of its JSON, CBOR and Smile message converters
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> throw new IllegalArgumentException(format);
+        };
+        if (encoding.equals("br")) {
+            Brotli4jLoader.ensureAvailability();
+            brotliParameters = new Encoder.Parameters().setQuality(4);
+        }
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new TaskView((long) i, "Benchmark task number " + i, i % 3 == 0));
+        }
+    }
+
+    // Straight through the encoder to a stream that only counts, as in a response
+    @Benchmark
+    public void encode(Payload payload) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        OutputStream out = switch (encoding) {
+            case "identity" -> counter;
+            case "gzip" -> new Level6GZIPOutputStream(counter);
+            case "br" -> new BrotliOutputStream(counter, brotliParameters);
+            default -> throw new IllegalArgumentException(encoding);
+        };
+        try (out) {
+            objectMapper.writeValue(out, tasks);
+        }
+        payload.payloadBytes = counter.count;
+    }
+
+    private static final class Level6GZIPOutputStream extends GZIPOutputStream {
+        Level6GZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(6);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
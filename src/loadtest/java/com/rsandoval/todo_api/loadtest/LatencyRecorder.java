@@ -0,0 +1,60 @@
+package com.rsandoval.todo_api.loadtest;
+
+import java.util.Arrays;
+
+// Latencies (in nanoseconds) of one endpoint, recorded by one worker thread: no locking needed.
+// Workers' recorders are merged once the run is over.
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private int rejected;
+
+    void record(long nanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (status == 503 || status == 429) {
+            rejected++;
+        } else if (status < 200 || status >= 300) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyRecorder other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        rejected += other.rejected;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    int rejected() {
+        return rejected;
+    }
+
+    // Percentiles in milliseconds, e.g. {0.5, 0.99, 0.999}
+    double[] percentilesMillis(double... percentiles) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double[] result = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (count == 0) continue;
+            int index = (int) Math.min(count - 1, Math.max(0, Math.ceil(percentiles[i] * count) - 1));
+            result[i] = sorted[index] / 1e6;
+        }
+        return result;
+    }
+}
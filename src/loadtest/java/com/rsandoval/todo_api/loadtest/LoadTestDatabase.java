@@ -0,0 +1,51 @@
+package com.rsandoval.todo_api.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Where the load tests get their database from. By default a throwaway embedded Postgres (real
+// Postgres binaries, unpacked and started by the test itself: no Docker, nothing to install),
+// started once per JVM so several load test classes share it.
+// Pass -Dloadtest.db.url=jdbc:postgresql://... (plus .username/.password) to use an existing server instead.
+final class LoadTestDatabase {
+
+    private static EmbeddedPostgres embedded;
+
+    private LoadTestDatabase() {
+    }
+
+    static void register(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("loadtest.db.url");
+        if (url != null && !url.isBlank()) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("loadtest.db.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("loadtest.db.password", "mysecretpassword"));
+            return;
+        }
+        EmbeddedPostgres postgres = embedded();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    private static synchronized EmbeddedPostgres embedded() {
+        if (embedded == null) {
+            try {
+                embedded = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start the embedded Postgres (note: it refuses to run as root)", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    embedded.close();
+                } catch (IOException ignored) {
+                    // The process is going away anyway
+                }
+            }));
+        }
+        return embedded;
+    }
+}
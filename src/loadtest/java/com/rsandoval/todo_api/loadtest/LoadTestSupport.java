@@ -0,0 +1,289 @@
+package com.rsandoval.todo_api.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Boots the whole app (like TaskApiIntegrationTests) against a Postgres of its own, seeds N users with
+// M tasks each, and then has one client per user hammer the API with a realistic mix of requests for a
+// fixed time. Prints throughput and p50/p99/p99.9 latency per endpoint and saves the report under target/.
+// The subclasses run the same scenario in different configurations so their reports can be compared.
+//
+// Run with:  ./mvnw -P loadtest test   (options: -Dloadtest.users, .tasks, .warmup, .duration, .seed, .db.url)
+abstract class LoadTestSupport {
+
+    static final int USERS = Integer.getInteger("loadtest.users", 50);
+    static final int TASKS_PER_USER = Integer.getInteger("loadtest.tasks", 100);
+    static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup", 10);
+    static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration", 30);
+    // Same seed, same sequence of requests per client: runs are comparable
+    static final long SEED = Long.getLong("loadtest.seed", 42L);
+    static final String PASSWORD = "password";
+
+    // What a client does, and how often (weights out of 100): mostly reading, some writing, a few logins
+    enum Endpoint {
+        LOGIN(2), LIST(45), GET(25), CREATE(10), UPDATE(13), DELETE(5);
+
+        final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+
+        static Endpoint pick(Random random) {
+            int roll = random.nextInt(100);
+            for (Endpoint endpoint : values()) {
+                roll -= endpoint.weight;
+                if (roll < 0) return endpoint;
+            }
+            return LIST;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpClient client;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.register(registry);
+    }
+
+    // A short label for the report, e.g. "platform"
+    abstract String mode();
+
+    @Test
+    void testMixedWorkload() throws Exception {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Map<String, List<Long>> tasksByUser = seed();
+
+        List<Worker> workers = new ArrayList<>();
+        int index = 0;
+        for (Map.Entry<String, List<Long>> user : tasksByUser.entrySet()) {
+            workers.add(new Worker(user.getKey(), user.getValue(), new Random(SEED + index++)));
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP_SECONDS * 1_000_000_000L;
+        long end = measureFrom + DURATION_SECONDS * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (Worker worker : workers) {
+            futures.add(executor.submit(() -> {
+                worker.run(measureFrom, end);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Map<Endpoint, LatencyRecorder> merged = new EnumMap<>(Endpoint.class);
+        LatencyRecorder total = new LatencyRecorder();
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            for (Worker worker : workers) {
+                recorder.merge(worker.recorders.get(endpoint));
+            }
+            merged.put(endpoint, recorder);
+            total.merge(recorder);
+        }
+        report(merged, total);
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            assertThat(merged.get(endpoint).errors()).as("errors on " + endpoint).isZero();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM task");
+        jdbcTemplate.update("DELETE FROM task_list_version");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'load-user-%'");
+    }
+
+    // Straight into the database (a login per user is part of the scenario, registering isn't)
+    private Map<String, List<Long>> seed() {
+        // Same password for everyone, so it only needs hashing once
+        String hash = passwordEncoder.encode(PASSWORD);
+        List<Object[]> users = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            users.add(new Object[]{"load-user-" + u, hash});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, role) VALUES (?, ?, 'USER')", users);
+
+        Map<Long, String> usernames = new HashMap<>();
+        jdbcTemplate.query("SELECT id, username FROM users WHERE username LIKE 'load-user-%'",
+                rs -> { usernames.put(rs.getLong(1), rs.getString(2)); });
+        List<Object[]> tasks = new ArrayList<>();
+        for (Long userId : usernames.keySet()) {
+            for (int t = 0; t < TASKS_PER_USER; t++) {
+                tasks.add(new Object[]{"Seeded task " + t, t % 4 == 0, userId});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO task (id, description, completed, user_id) VALUES (nextval('task_seq'), ?, ?, ?)", tasks);
+
+        Map<String, List<Long>> tasksByUser = new HashMap<>();
+        usernames.values().forEach(username -> tasksByUser.put(username, new ArrayList<>()));
+        jdbcTemplate.query("SELECT id, user_id FROM task",
+                rs -> { tasksByUser.get(usernames.get(rs.getLong(2))).add(rs.getLong(1)); });
+        return tasksByUser;
+    }
+
+    private void report(Map<Endpoint, LatencyRecorder> results, LatencyRecorder total) throws IOException {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Load test '%s' at %s: java=%d users=%d tasks/user=%d warmup=%ds duration=%ds seed=%d%n",
+                mode(), LocalDateTime.now().withNano(0), Runtime.version().feature(),
+                USERS, TASKS_PER_USER, WARMUP_SECONDS, DURATION_SECONDS, SEED));
+        report.append(String.format("%-8s %9s %10s %9s %9s %9s %9s %7s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors", "rejected"));
+        results.forEach((endpoint, recorder) -> report.append(line(endpoint.name(), recorder)));
+        report.append(line("TOTAL", total));
+        System.out.print(report);
+
+        Path directory = Path.of("target");
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("load-test-report-" + mode() + ".txt"), report);
+        // One line per run, across runs, for quick before/after comparisons
+        Files.writeString(directory.resolve("load-test-results.txt"), line(mode(), total),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String line(String name, LatencyRecorder recorder) {
+        double[] p = recorder.percentilesMillis(0.5, 0.99, 0.999, 1.0);
+        return String.format("%-8s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %7d %8d%n",
+                name, recorder.count(), recorder.count() / (double) DURATION_SECONDS,
+                p[0], p[1], p[2], p[3], recorder.errors(), recorder.rejected());
+    }
+
+    // One simulated user: logs in, then keeps sending requests for its own tasks
+    private class Worker {
+
+        private final String username;
+        private final List<Long> taskIds;
+        private final Random random;
+        private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+        private String token;
+        private int created;
+
+        Worker(String username, List<Long> taskIds, Random random) {
+            this.username = username;
+            this.taskIds = new ArrayList<>(taskIds);
+            this.random = random;
+            for (Endpoint endpoint : Endpoint.values()) {
+                recorders.put(endpoint, new LatencyRecorder());
+            }
+        }
+
+        void run(long measureFrom, long end) throws IOException, InterruptedException {
+            token = login().body();
+            while (System.nanoTime() < end) {
+                Endpoint endpoint = Endpoint.pick(random);
+                // Don't run out of tasks to read/update/delete
+                if (taskIds.size() < 10 && endpoint == Endpoint.DELETE) {
+                    endpoint = Endpoint.CREATE;
+                }
+                long t0 = System.nanoTime();
+                int status = call(endpoint);
+                long elapsed = System.nanoTime() - t0;
+                if (t0 >= measureFrom) {
+                    recorders.get(endpoint).record(elapsed, status);
+                }
+            }
+        }
+
+        private int call(Endpoint endpoint) throws IOException, InterruptedException {
+            return switch (endpoint) {
+                case LOGIN -> {
+                    HttpResponse<String> response = login();
+                    if (response.statusCode() == 200) token = response.body();
+                    yield response.statusCode();
+                }
+                case LIST -> send(request("/api/tasks?limit=100").GET()).statusCode();
+                case GET -> send(request("/api/tasks/" + randomTask()).GET()).statusCode();
+                case CREATE -> {
+                    HttpResponse<String> response = send(request("/api/tasks")
+                            .POST(json("{\"description\":\"Created by " + username + " #" + created++ + "\",\"completed\":false}")));
+                    if (response.statusCode() == 201) {
+                        taskIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+                    }
+                    yield response.statusCode();
+                }
+                case UPDATE -> send(request("/api/tasks/" + randomTask())
+                        .PUT(json("{\"description\":\"Updated by " + username + "\",\"completed\":" + random.nextBoolean() + "}")))
+                        .statusCode();
+                case DELETE -> {
+                    Long id = taskIds.remove(random.nextInt(taskIds.size()));
+                    yield send(request("/api/tasks/" + id).DELETE()).statusCode();
+                }
+            };
+        }
+
+        private HttpResponse<String> login() throws IOException, InterruptedException {
+            HttpRequest login = HttpRequest.newBuilder(uri("/api/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(json("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                    .build();
+            return client.send(login, HttpResponse.BodyHandlers.ofString());
+        }
+
+        private Long randomTask() {
+            return taskIds.get(random.nextInt(taskIds.size()));
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(uri(path))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json");
+        }
+
+        private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+}
@@ -0,0 +1,14 @@
+package com.rsandoval.todo_api.loadtest;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Tomcat's classic pool of 200 platform threads
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLoadTests extends LoadTestSupport {
+
+    @Override
+    String mode() {
+        return "platform";
+    }
+}
@@ -0,0 +1,17 @@
+package com.rsandoval.todo_api.loadtest;
+
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// One virtual thread per request; concurrency is bounded by the ConcurrencyLimitFilter instead
+@EnabledForJreRange(min = JRE.JAVA_21, disabledReason = "Virtual threads need Java 21")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadsLoadTests extends LoadTestSupport {
+
+    @Override
+    String mode() {
+        return "virtual";
+    }
+}
@@ -0,0 +1,31 @@
+package com.rsandoval.todo_api.config;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A BCrypt hash records the cost it was made with ("$2a$10$..."). Spring's encoder only asks for a rehash
+// when that cost is LOWER than the configured strength; this one also does when it is higher, so the
+// strength can be turned down as well as up. Either way, users move to the new cost on their next login.
+public class AdaptiveBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[abyx]?\\$(\\d\\d)\\$");
+
+    private final int strength;
+
+    public AdaptiveBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        // Not a BCrypt hash we can read: leave it alone, matches() would reject it anyway
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+}
@@ -0,0 +1,38 @@
+package com.rsandoval.todo_api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+@Configuration
+public class CompressionConfig {
+
+    @Value("${todo.compression.min-response-size:1KB}")
+    private DataSize minResponseSize;
+
+    @Value("${todo.compression.mime-types:application/json,application/x-ndjson,application/cbor,application/x-jackson-smile}")
+    private List<MediaType> mimeTypes;
+
+    @Value("${todo.compression.gzip-level:6}")
+    private int gzipLevel;
+
+    @Value("${todo.compression.brotli-quality:4}")
+    private int brotliQuality;
+
+    // Behind the concurrency limit and the SQL metrics, in front of everything that writes a body
+    // (security's error responses included)
+    @Bean
+    public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter() {
+        FilterRegistrationBean<ResponseCompressionFilter> registration = new FilterRegistrationBean<>(
+                new ResponseCompressionFilter((int) minResponseSize.toBytes(), mimeTypes, gzipLevel, brotliQuality));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
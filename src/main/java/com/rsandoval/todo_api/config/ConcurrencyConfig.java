@@ -0,0 +1,48 @@
+package com.rsandoval.todo_api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    // Almost every API request needs a connection for most of its life; allowing a few requests per
+    // connection keeps the pool busy (JSON, BCrypt and network time are spent outside of it) without
+    // building a queue inside Hikari
+    private static final int REQUESTS_PER_CONNECTION = 2;
+
+    // 0 (the default) means "derive it from the connection pool size"
+    @Value("${todo.concurrency.max-requests:0}")
+    private int maxRequests;
+
+    @Value("${todo.concurrency.acquire-timeout:2s}")
+    private Duration acquireTimeout;
+
+    // Registered in front of everything else (including the security filters: the JWT filter may hit the DB too)
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(DataSource dataSource,
+                                                                                 MeterRegistry meterRegistry) {
+        int limit = maxRequests > 0 ? maxRequests : REQUESTS_PER_CONNECTION * poolSize(dataSource);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration =
+                new FilterRegistrationBean<>(new ConcurrencyLimitFilter(limit, acquireTimeout, meterRegistry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        // Hikari's own default
+        return 10;
+    }
+}
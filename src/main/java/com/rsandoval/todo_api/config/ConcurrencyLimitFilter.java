@@ -0,0 +1,67 @@
+package com.rsandoval.todo_api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Caps how many API requests run at the same time. With Tomcat's platform-thread pool the pool size
+// did this for us; with virtual threads every request gets a thread, and thousands of them would just
+// queue inside Hikari for one of its few connections until they time out. Here they wait (briefly,
+// without holding anything) for a permit instead, and past that wait get a clean 503 with Retry-After.
+// A Semaphore parks virtual threads without pinning them to their carrier, unlike synchronized.
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(int maxConcurrentRequests, Duration acquireTimeout, MeterRegistry meterRegistry) {
+        if (maxConcurrentRequests <= 0) throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+        // Fair, so a burst can't starve the requests that have been waiting longest
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeoutMillis = acquireTimeout.toMillis();
+        this.rejected = Counter.builder("http.concurrency.rejected")
+                .description("API requests refused with 503 after waiting for a permit").register(meterRegistry);
+        Gauge.builder("http.concurrency.permits.max", () -> maxConcurrentRequests)
+                .description("API requests allowed to run at once").register(meterRegistry);
+        // Near zero for long means requests are queueing for a permit
+        Gauge.builder("http.concurrency.permits.available", permits, Semaphore::availablePermits)
+                .description("Permits not held by a running API request").register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, try again shortly");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // For async requests (the SSE stream) this runs as soon as the request thread is released
+            permits.release();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.rsandoval.todo_api.config;
 
 import com.rsandoval.todo_api.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -47,15 +49,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Extract the token (remove the "Bearer" prefix)
         jwt = authHeader.substring(7);
 
+        // Verify the token ONCE and keep its claims for the checks below
+        final Claims claims;
+        try {
+            claims = jwtService.verifyToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            // Bad signature, malformed or expired: carry on unauthenticated and let security reject it
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         // Extract the username from the token
-        username = jwtService.extractUsername(jwt);
+        username = claims.getSubject();
 
         // If username exists AND we aren't already authenticated
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            // Load user from database
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // The signed claims already tell us who this is: no database round-trip needed
+            UserDetails userDetails = jwtService.extractAuthenticatedUser(claims);
+            if (userDetails == null) {
+                // Token issued without id claims: load user from database
+                userDetails = userDetailsService.loadUserByUsername(username);
+            }
             // Validate token
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 // Create an Authentication Token
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
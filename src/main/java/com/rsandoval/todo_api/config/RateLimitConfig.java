@@ -0,0 +1,41 @@
+package com.rsandoval.todo_api.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+public class RateLimitConfig {
+
+    // todo.rate-limit.<group>.per-second and .burst for every RateLimitFilter.Group; per-second=0 turns a group off
+    @Bean
+    public RateLimitFilter rateLimitFilter(Environment environment, MeterRegistry meterRegistry) {
+        Map<RateLimitFilter.Group, TokenBucketRateLimiter> limiters = new EnumMap<>(RateLimitFilter.Group.class);
+        for (RateLimitFilter.Group group : RateLimitFilter.Group.values()) {
+            String prefix = "todo.rate-limit." + group.getPropertyName();
+            double perSecond = environment.getProperty(prefix + ".per-second", Double.class, 0.0);
+            int burst = environment.getProperty(prefix + ".burst", Integer.class, 1);
+            if (perSecond > 0) {
+                limiters.put(group, new TokenBucketRateLimiter(perSecond, burst));
+            }
+        }
+        Duration idleEvictionInterval = environment.getProperty(
+                "todo.rate-limit.idle-eviction-interval", Duration.class, Duration.ofMinutes(1));
+        return new RateLimitFilter(limiters, idleEvictionInterval, meterRegistry);
+    }
+
+    // Only runs inside the security chain (SecurityConfig), after the JWT filter: as a plain servlet filter
+    // it would run before anyone is authenticated and count every request against the IP
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+}
@@ -0,0 +1,117 @@
+package com.rsandoval.todo_api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Per-client rate limits, so one misbehaving client can't eat the capacity everyone else shares
+// (ConcurrencyLimitFilter only caps the total). Runs inside the security chain, right before authorization,
+// so the JWT has been checked and requests can be counted against the user who sent them:
+// - /api/auth/** per client IP (nobody is logged in yet; this is what slows down password guessing)
+// - /api/tasks/** per user, reads and writes separately
+// Past its limit a client gets 429 with Retry-After. Each group has its own rate and burst (see RateLimitConfig);
+// a group configured with rate 0 is not limited.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public enum Group {
+        AUTH("auth"), TASK_READS("task-reads"), TASK_WRITES("task-writes");
+
+        private final String propertyName;
+
+        Group(String propertyName) {
+            this.propertyName = propertyName;
+        }
+
+        // As in the todo.rate-limit.<group>.* properties and the metric tags
+        public String getPropertyName() {
+            return propertyName;
+        }
+    }
+
+    private final Map<Group, TokenBucketRateLimiter> limiters;
+    private final Map<Group, Counter> rejected = new EnumMap<>(Group.class);
+    private final ScheduledExecutorService evictor;
+
+    public RateLimitFilter(Map<Group, TokenBucketRateLimiter> limiters, Duration idleEvictionInterval,
+                           MeterRegistry meterRegistry) {
+        this.limiters = new EnumMap<>(limiters);
+        this.limiters.forEach((group, limiter) -> {
+            rejected.put(group, Counter.builder("rate.limit.rejected").tag("group", group.getPropertyName())
+                    .description("Requests refused with 429").register(meterRegistry));
+            Gauge.builder("rate.limit.keys", limiter, TokenBucketRateLimiter::size).tag("group", group.getPropertyName())
+                    .description("Users or IPs with a partly used bucket").register(meterRegistry);
+        });
+        // Keys that have been quiet long enough for their bucket to fill up take no memory
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = idleEvictionInterval.toMillis();
+        evictor.scheduleWithFixedDelay(() -> this.limiters.values().forEach(TokenBucketRateLimiter::evictIdle),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = groupOf(request);
+        TokenBucketRateLimiter limiter = group == null ? null : limiters.get(group);
+        if (limiter != null) {
+            long waitNanos = limiter.tryAcquire(keyOf(request, group));
+            if (waitNanos > 0) {
+                rejected.get(group).increment();
+                // Whole seconds, rounded up: coming back any earlier would just be refused again
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+                response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests, try again later");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    static Group groupOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/auth/")) {
+            return Group.AUTH;
+        }
+        if (path.equals("/api/tasks") || path.startsWith("/api/tasks/")) {
+            String method = request.getMethod();
+            return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) ? Group.TASK_READS : Group.TASK_WRITES;
+        }
+        return null;
+    }
+
+    // The user once the JWT filter has recognised them; the IP for logins, registrations and anonymous requests
+    private static String keyOf(HttpServletRequest request, Group group) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (group != Group.AUTH && authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return "user:" + user.getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    @Override
+    public void destroy() {
+        evictor.shutdownNow();
+    }
+}
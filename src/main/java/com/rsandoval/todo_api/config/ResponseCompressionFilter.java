@@ -0,0 +1,396 @@
+package com.rsandoval.todo_api.config;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// Compresses API responses with brotli or gzip, whichever the client prefers (Accept-Encoding; brotli wins a tie).
+// Tomcat's own server.compression only does gzip, and compresses every response of unknown length however
+// small, which is most of ours (Jackson streams them without a Content-Length).
+// Nothing is buffered beyond the first minSize bytes: until then we can't know whether the body is worth
+// compressing, after that everything goes straight through the encoder to the socket. A body that ends
+// (or is flushed) before reaching minSize is sent as it is, with its Content-Length.
+// Only the given content types are touched: never the SSE stream, whose events must not wait in an encoder.
+// Non-blocking writes (a WriteListener) are passed through uncompressed: an encoder writes whenever it likes,
+// where those may only write when the container says the socket is ready.
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private final int minSize;
+    private final List<MediaType> compressibleTypes;
+    private final int gzipLevel;
+    private final Encoder.Parameters brotliParameters;
+    private final boolean brotliAvailable;
+
+    public ResponseCompressionFilter(int minSize, List<MediaType> compressibleTypes, int gzipLevel, int brotliQuality) {
+        if (minSize <= 0) throw new IllegalArgumentException("minSize must be positive");
+        this.minSize = minSize;
+        this.compressibleTypes = List.copyOf(compressibleTypes);
+        this.gzipLevel = gzipLevel;
+        this.brotliParameters = new Encoder.Parameters().setQuality(brotliQuality);
+        this.brotliAvailable = Brotli4jLoader.isAvailable();
+    }
+
+    public boolean isBrotliAvailable() {
+        return brotliAvailable;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String encoding = chooseEncoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null || "HEAD".equalsIgnoreCase(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse(response, encoding);
+        filterChain.doFilter(request, compressing);
+        if (request.isAsyncStarted()) {
+            // The body is still being written (async results, streams): the encoder's trailer goes out at the end
+            request.getAsyncContext().addListener(new FinishingListener(compressing));
+        } else {
+            compressing.finish();
+        }
+    }
+
+    // "br" or "gzip" (the highest q-value the client gave, brotli on a tie), or null for "send it as it is"
+    String chooseEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double brotli = 0, gzip = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] fields = part.split(";");
+            String coding = fields[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < fields.length; i++) {
+                String parameter = fields[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case "br" -> brotli = quality;
+                case "gzip" -> gzip = quality;
+                case "*" -> {
+                    brotli = Math.max(brotli, quality);
+                    gzip = Math.max(gzip, quality);
+                }
+                default -> { }
+            }
+        }
+        if (brotliAvailable && brotli > 0 && brotli >= gzip) {
+            return "br";
+        }
+        return gzip > 0 ? "gzip" : null;
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return compressibleTypes.stream().anyMatch(compressible -> compressible.includes(type));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static class FinishingListener implements AsyncListener {
+
+        private final CompressingResponse response;
+        private boolean failed;
+
+        FinishingListener(CompressingResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            // After an error the client may be gone: there is nobody left to finish the body for
+            if (!failed) {
+                response.finish();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        // Listeners are dropped when async processing starts again (after a dispatch): stay on for the new round
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final String encoding;
+        private CompressingOutputStream outputStream;
+        private PrintWriter writer;
+        // What the application declared; only passed on if we end up not compressing
+        private long contentLength = -1;
+
+        CompressingResponse(HttpServletResponse response, String encoding) {
+            super(response);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (outputStream == null) {
+                outputStream = new CompressingOutputStream(this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                outputStream = new CompressingOutputStream(this);
+                Charset charset = Charset.forName(getCharacterEncoding());
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, charset));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (outputStream != null && outputStream.decided) {
+                if (!outputStream.compressing) {
+                    super.setContentLengthLong(length);
+                }
+                return;
+            }
+            contentLength = length;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (outputStream != null) {
+                outputStream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (outputStream != null) {
+                outputStream.finish();
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+
+        // Called once, when the body turns out big enough (or the first byte shows it isn't compressible).
+        // bodySize is what we know of the body so far: Integer.MAX_VALUE if it is bigger than the buffer
+        boolean startCompressing(int bodySize) {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (response.isCommitted() || getHeader(HttpHeaders.CONTENT_ENCODING) != null
+                    || !isCompressible(getContentType())) {
+                return false;
+            }
+            // The body now depends on Accept-Encoding, whichever way this one went
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (contentLength >= 0 && contentLength < minSize) {
+                return false;
+            }
+            if (bodySize < minSize) {
+                return false;
+            }
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+            // The compressed bytes are no longer the ones a strong ETag promised; they still mean the same thing
+            String etag = response.getHeader(HttpHeaders.ETAG);
+            if (etag != null && !etag.startsWith("W/")) {
+                response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            }
+            return true;
+        }
+
+        void stopCompressing() {
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        private final CompressingResponse response;
+        // The first minSize bytes, held back until we know whether to compress
+        private byte[] buffer = new byte[minSize];
+        private int buffered;
+        private boolean decided;
+        private boolean compressing;
+        private ServletOutputStream out;
+        private OutputStream target;
+
+        CompressingOutputStream(CompressingResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!decided && buffered < buffer.length) {
+                buffer[buffered++] = (byte) b;
+                return;
+            }
+            decide(Integer.MAX_VALUE);
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (!decided && buffered + length <= buffer.length) {
+                System.arraycopy(bytes, offset, buffer, buffered, length);
+                buffered += length;
+                return;
+            }
+            decide(Integer.MAX_VALUE);
+            target.write(bytes, offset, length);
+        }
+
+        // A flush before minSize bytes means "send what you have": too little to bother
+        @Override
+        public void flush() throws IOException {
+            decide(buffered);
+            target.flush();
+        }
+
+        void finish() throws IOException {
+            decide(buffered);
+            if (compressing) {
+                // Writes the encoder's trailer; the servlet stream itself stays open for the container
+                target.close();
+            } else {
+                target.flush();
+            }
+        }
+
+        private void decide(int bodySize) throws IOException {
+            if (decided) {
+                return;
+            }
+            decided = true;
+            out = response.getResponse().getOutputStream();
+            compressing = response.startCompressing(bodySize);
+            if (compressing) {
+                OutputStream unclosable = new FilterOutputStream(out) {
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        out.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                };
+                target = response.encoding.equals("br")
+                        ? new BrotliOutputStream(unclosable, brotliParameters)
+                        : new LeveledGZIPOutputStream(unclosable, gzipLevel);
+            } else {
+                response.stopCompressing();
+                target = out;
+            }
+            target.write(buffer, 0, buffered);
+            buffer = null;
+        }
+
+        // Before the listener is set, writes may still block: until then we are always ready
+        @Override
+        public boolean isReady() {
+            return out == null || compressing || out.isReady();
+        }
+
+        // From here on the container decides when bytes may be written, so nothing can be compressed:
+        // what is buffered goes out as it is (still a blocking write) and everything after passes straight through
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                decide(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (compressing) {
+                throw new IllegalStateException("The response is already being compressed; it can't switch to non-blocking writes");
+            }
+            out.setWriteListener(writeListener);
+        }
+    }
+
+    // GZIPOutputStream only takes the compression level through its Deflater. Sync flush, so a flush()
+    // really sends what was written so far instead of leaving it in the deflater
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+        LeveledGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192, true);
+            def.setLevel(level);
+        }
+    }
+}
@@ -1,24 +1,33 @@
 package com.rsandoval.todo_api.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 @Configuration
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    // Inject our Filter and our User Service
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    // Inject our Filters and our User Service
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter) {
         this.jwtAuthFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -27,7 +36,13 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable) // Disable CSRF for APIs
                 .authorizeHttpRequests(auth -> auth
                         // Allow anyone to access /api/auth
-                        .requestMatchers("/api/auth/**", "/", "/index.html").permitAll()
+                        .requestMatchers("/api/auth/**").permitAll()
+                        // Error responses (404, 403...) are rendered by /error; don't turn them all into 403s
+                        .requestMatchers("/error").permitAll()
+                        // Health, metrics and cache control: only served on the management port, which isn't exposed publicly
+                        .requestMatchers("/actuator/health", "/actuator/prometheus", "/actuator/usercache/**").permitAll()
+                        // The async re-dispatch that closes an SSE stream; the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Lock everything else down
                         .anyRequest().authenticated()
                 )
@@ -35,19 +50,48 @@ public class SecurityConfig {
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Add our JWT Filter BEFORE the standard "Username/Password" filter
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Rate limits per user (or per IP on /api/auth), once we know who the user is
+                .addFilterBefore(rateLimitFilter, AuthorizationFilter.class);
 
         return http.build();
     }
 
+    // The web UI (StaticResourceConfig) skips the filter chain altogether, JWT filter included: it is public,
+    // and a page load shouldn't pay for a security context nobody looks at. Spring Security logs a "not recommended"
+    // warning per ignored path at startup; permitAll() would still run the whole chain, which is what we avoid here
+    @Bean
+    public WebSecurityCustomizer staticResources() {
+        return web -> web.ignoring().requestMatchers(StaticResourceConfig.PATHS);
+    }
+
+    // Only runs inside the security chain: as a @Component, Boot would also register it as a servlet filter
+    // in front of every request, the ignored ones included
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(JwtAuthenticationFilter filter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     // Allows us to inject the AuthenticationManager into our controller
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
     }
 
+    // BCrypt at the configured cost, timed, and run on its own bounded pool (see BoundedPasswordEncoder).
+    // Stored hashes made with a different cost are re-hashed on the user's next successful login
+    // (DaoAuthenticationProvider does that through CustomUserDetailsService.updatePassword)
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${todo.password-hashing.bcrypt-strength:10}") int strength,
+                                           @Value("${todo.password-hashing.threads:0}") int threads,
+                                           @Value("${todo.password-hashing.queue-capacity:32}") int queueCapacity,
+                                           @Value("${todo.password-hashing.timeout:5s}") Duration timeout){
+        // 0 = half the cores: logins can never take the whole machine
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        PasswordEncoder bcrypt = new TimedPasswordEncoder(new AdaptiveBCryptPasswordEncoder(strength), meterRegistry);
+        return new BoundedPasswordEncoder(bcrypt, poolSize, queueCapacity, timeout, meterRegistry);
     }
 }
@@ -0,0 +1,32 @@
+package com.rsandoval.todo_api.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Hibernate hands every SQL statement it prepares to this inspector (see MetricsConfig).
+// We don't change the SQL; we only count it for whatever request the current thread is working on,
+// so SqlStatementMetricsFilter can report statements per request.
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    // Start counting on the current thread
+    public static void begin() {
+        CURRENT.set(new int[1]);
+    }
+
+    // Stop counting and return how many statements were prepared since begin()
+    public static int end() {
+        int[] count = CURRENT.get();
+        CURRENT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
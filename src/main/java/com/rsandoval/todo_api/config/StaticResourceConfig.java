@@ -0,0 +1,86 @@
+package com.rsandoval.todo_api.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The web UI, as the build leaves it in static/ (see src/build/java/StaticAssetPipeline.java):
+// - /assets/**: fingerprinted file names, so they never change under a URL: cached for a year, immutable
+// - index.html (and /, which forwards to it): always revalidated, with an ETag so that costs a 304
+// Both are served from the precompressed .br/.gz copies when the client accepts them.
+// None of this goes through the security filter chain (SecurityConfig ignores these paths).
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    static final String[] PATHS = {"/", "/index.html", "/assets/**"};
+
+    @Value("${todo.static.assets-max-age:365d}")
+    private Duration assetsMaxAge;
+
+    // Classpath resources don't change while we run: each one is hashed once
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(assetsMaxAge).cachePublic().immutable())
+                .setUseLastModified(false)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+        registry.addResourceHandler("/index.html")
+                .addResourceLocations("classpath:/static/")
+                .setCacheControl(CacheControl.noCache())
+                // The jar's timestamps say nothing about the content; the ETag does
+                .setUseLastModified(false)
+                .setEtagGenerator(this::etagOf)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+    }
+
+    // The headers the security chain used to add to these responses
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                     @NonNull Object handler) {
+                response.setHeader("X-Content-Type-Options", "nosniff");
+                response.setHeader("X-Frame-Options", "DENY");
+                return true;
+            }
+        }).addPathPatterns(PATHS);
+    }
+
+    // Per file actually sent: index.html.br and index.html.gz are different bytes, so they get different ETags
+    private String etagOf(Resource resource) {
+        return etags.computeIfAbsent(resource.getDescription(), description -> {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(resource.getContentAsByteArray());
+                return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.rsandoval.todo_api.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// A token bucket per key (user or IP): up to `burst` requests at once, refilled at `permitsPerSecond`.
+// Each bucket is a single AtomicLong holding the time at which it will be full again (the "generic cell
+// rate algorithm", which behaves exactly like a token bucket). Taking a token is one compare-and-set on
+// that key's own counter: no lock, and requests of different keys never touch the same memory.
+// A bucket that is full again is indistinguishable from a new one, so evictIdle() can simply drop it.
+public class TokenBucketRateLimiter {
+
+    private final long nanosPerPermit;
+    // How long an empty bucket takes to fill up: a bucket may be at most this far "in the future"
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) throw new IllegalArgumentException("permitsPerSecond must be positive");
+        if (burst <= 0) throw new IllegalArgumentException("burst must be positive");
+        this.nanosPerPermit = Math.max(1, Math.round(1_000_000_000L / permitsPerSecond));
+        this.burstNanos = nanosPerPermit * burst;
+        this.nanoClock = nanoClock;
+    }
+
+    // Takes a token. Returns 0 if there was one, otherwise how many nanoseconds until there will be
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = fullAt.get(key);
+        if (bucket == null) {
+            bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = bucket.get();
+            // A bucket that filled up in the past is simply full now
+            long next = (current - now > 0 ? current : now) + nanosPerPermit;
+            long overdraft = next - now - burstNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (bucket.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Forgets the keys whose bucket is full again. Racy on purpose: a request that took a token from
+    // a bucket just as it was dropped got one token for free, which is harmless
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    public int size() {
+        return fullAt.size();
+    }
+}
@@ -0,0 +1,50 @@
+package com.rsandoval.todo_api.config;
+
+import com.rsandoval.todo_api.service.UserIdentityCache;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// /actuator/usercache on the management port of each node:
+//   GET                      -> hit/miss/eviction statistics
+//   DELETE                   -> forget every cached user on this node
+//   DELETE /{username}       -> forget one user on this node
+// Whatever changes a user's role or password outside of this app (an admin script, another service)
+// should call DELETE on every node; until then nodes may serve the old data for at most todo.user-cache.ttl.
+@Component
+@Endpoint(id = "usercache")
+public class UserIdentityCacheEndpoint {
+
+    private final UserIdentityCache cache;
+
+    public UserIdentityCacheEndpoint(UserIdentityCache cache) {
+        this.cache = cache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        long hits = cache.getHitCount();
+        long lookups = hits + cache.getMissCount();
+        return Map.of(
+                "size", cache.size(),
+                "hits", hits,
+                "misses", cache.getMissCount(),
+                "hitRate", lookups == 0 ? 0.0 : (double) hits / lookups,
+                "evictions", cache.getEvictionCount(),
+                "invalidations", cache.getInvalidationCount());
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @DeleteOperation
+    public void invalidate(@Selector String username) {
+        cache.invalidate(username);
+    }
+}
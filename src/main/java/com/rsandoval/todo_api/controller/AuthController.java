@@ -5,6 +5,7 @@ import com.rsandoval.todo_api.dto.RegisterRequest;
 import com.rsandoval.todo_api.model.User;
 import com.rsandoval.todo_api.repository.UserRepository;
 import com.rsandoval.todo_api.service.JwtService;
+import com.rsandoval.todo_api.service.UserIdentityCache;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,15 +26,18 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final UserIdentityCache userIdentityCache;
 
     public AuthController(UserRepository userRepository,
                           PasswordEncoder passwordEncoder,
                           JwtService jwtService,
-                          AuthenticationManager authenticationManager) {
+                          AuthenticationManager authenticationManager,
+                          UserIdentityCache userIdentityCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
+        this.userIdentityCache = userIdentityCache;
     }
 
     @PostMapping("/register")
@@ -49,6 +53,8 @@ public class AuthController {
         newUser.setPassword(encryptedPassword);
         newUser.setRole("USER");
         userRepository.save(newUser);
+        // Nothing should be cached under a brand-new name, but make sure no stale entry survives
+        userIdentityCache.invalidate(newUser.getUsername());
 
         return ResponseEntity.status(HttpStatus.CREATED).body("User registered successfully");
     }
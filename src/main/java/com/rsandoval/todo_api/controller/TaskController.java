@@ -1,13 +1,37 @@
 package com.rsandoval.todo_api.controller;
 
+import com.rsandoval.todo_api.config.AuthenticatedUser;
+import com.rsandoval.todo_api.dto.TaskBatchOperation;
+import com.rsandoval.todo_api.dto.SearchCursor;
+import com.rsandoval.todo_api.dto.SyncCursor;
+import com.rsandoval.todo_api.dto.TaskChangeRow;
+import com.rsandoval.todo_api.dto.TaskChanges;
+import com.rsandoval.todo_api.dto.TaskCursor;
+import com.rsandoval.todo_api.dto.TaskSearchHit;
+import com.rsandoval.todo_api.dto.TaskStatistics;
+import com.rsandoval.todo_api.dto.TaskView;
 import com.rsandoval.todo_api.model.Task;
 import com.rsandoval.todo_api.exception.TaskNotFoundException;
 import com.rsandoval.todo_api.model.User;
 import com.rsandoval.todo_api.repository.TaskRepository;
 import com.rsandoval.todo_api.repository.UserRepository;
+import com.rsandoval.todo_api.service.IdempotencyService;
+import com.rsandoval.todo_api.service.TaskBatchService;
+import com.rsandoval.todo_api.service.TaskCompletionQueue;
+import com.rsandoval.todo_api.service.TaskEventBroadcaster;
+import com.rsandoval.todo_api.service.TaskExportService;
+import com.rsandoval.todo_api.service.TaskPageCache;
+import com.rsandoval.todo_api.service.TaskSearchService;
+import com.rsandoval.todo_api.service.TaskService;
+import com.rsandoval.todo_api.service.TaskStatsService;
+import com.rsandoval.todo_api.service.TaskVersionService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.coyote.Response;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
@@ -15,104 +39,367 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderThreadLocalAccessor;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/tasks") // Sets a "base" URL for all methods in this class
 public class TaskController {
 
+    // Listings are returned one page at a time; the token for the next page travels in this header
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+    static final String PREFER_HEADER = "Prefer";
+    static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    static final String RESPOND_ASYNC = "respond-async";
+    // Clients may keep a copy, but must revalidate it (with If-None-Match) before using it.
+    // Those responses also say "Vary: Accept": the same URL can come back as JSON, CBOR or Smile
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
+    private final TaskExportService taskExportService;
+    private final TaskBatchService taskBatchService;
+    private final TaskVersionService taskVersionService;
+    private final TaskService taskService;
+    private final TaskEventBroadcaster taskEventBroadcaster;
+    private final TaskStatsService taskStatsService;
+    private final TaskSearchService taskSearchService;
+    private final TaskCompletionQueue taskCompletionQueue;
+    private final IdempotencyService idempotencyService;
+    private final TaskPageCache taskPageCache;
 
     // Constructor Injection: Inject the TaskRepository you're managing
     // "Inversion of Control"
-    public TaskController(TaskRepository taskRepository, UserRepository userRepository){
+    public TaskController(TaskRepository taskRepository,
+                          UserRepository userRepository,
+                          TaskExportService taskExportService,
+                          TaskBatchService taskBatchService,
+                          TaskVersionService taskVersionService,
+                          TaskService taskService,
+                          TaskEventBroadcaster taskEventBroadcaster,
+                          TaskStatsService taskStatsService,
+                          TaskSearchService taskSearchService,
+                          TaskCompletionQueue taskCompletionQueue,
+                          IdempotencyService idempotencyService,
+                          TaskPageCache taskPageCache){
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
+        this.taskExportService = taskExportService;
+        this.taskBatchService = taskBatchService;
+        this.taskVersionService = taskVersionService;
+        this.taskService = taskService;
+        this.taskEventBroadcaster = taskEventBroadcaster;
+        this.taskStatsService = taskStatsService;
+        this.taskSearchService = taskSearchService;
+        this.taskCompletionQueue = taskCompletionQueue;
+        this.idempotencyService = idempotencyService;
+        this.taskPageCache = taskPageCache;
     }
 
-    private User getCurrentUser() {
+    private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // The JWT filter already resolved the id for us
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        // Any other principal only knows the username, so look it up once
         String username = authentication.getName();
         return userRepository.findByUsername(username)
+                .map(User::getId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
     }
 
-    // Handle GET requests to "/api/tasks"
+    // The current user, once any completion toggles of theirs still waiting in the write-behind queue
+    // are in the database: whatever the request reads or writes next already takes them into account
+    private Long getCurrentUserIdWithPendingWrites() {
+        Long currentUserId = getCurrentUserId();
+        taskCompletionQueue.flush(currentUserId);
+        return currentUserId;
+    }
+
+    // Handle GET requests to "/api/tasks?completed=...&cursor=...&limit=..."
+    // Returns one page of tasks sorted by (completed, id); if there are more, the response
+    // carries an X-Next-Cursor header to pass back as "cursor" for the next page.
     @GetMapping
-    public List<Task> getAllTasks(){
-        User currentUser = getCurrentUser();
-        return taskRepository.findByUserId(
-                currentUser.getId(),
-                Sort.by(Sort.Order.asc("completed"), Sort.Order.asc("id"))
-        );
+    public ResponseEntity<List<TaskView>> getAllTasks(@RequestParam(required = false) Boolean completed,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        return getTaskPage(currentUserId, completed, cursor, limit, ifNoneMatch);
+    }
+
+    // Handle GET requests to "/api/tasks/export"
+    // Streams every task as newline-delimited JSON, straight from the database to the response
+    @GetMapping(value = "/export", produces = TaskExportService.NDJSON_CONTENT_TYPE)
+    public void exportTasks(HttpServletResponse response) throws IOException {
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        response.setContentType(TaskExportService.NDJSON_CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        taskExportService.exportTasks(currentUserId, response.getOutputStream());
+    }
+
+    // Handle GET requests to "/api/tasks/stream"
+    // Server-Sent Events: "created", "updated" and "deleted" events for this user's tasks, as they commit.
+    // The request thread is released as soon as this returns; the connection stays open asynchronously.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTasks() {
+        Long currentUserId = getCurrentUserId();
+        return taskEventBroadcaster.subscribe(currentUserId);
+    }
+
+    // Handle GET requests to "/api/tasks/stats?days=..."
+    // Total/completed/open counts, read from counters the writes keep up to date (never a count over the tasks).
+    // With days=N, also how many tasks were completed on each of the last N days (UTC, today included)
+    @GetMapping("/stats")
+    public TaskStatistics getStats(@RequestParam(defaultValue = "0") int days){
+        if (days < 0 || days > TaskStatsService.MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "days must be between 0 and " + TaskStatsService.MAX_DAYS);
+        }
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        return taskStatsService.getStatistics(currentUserId, days);
+    }
+
+    // Handle GET requests to "/api/tasks/changes?since=..."
+    // Delta sync: only what changed after the cursor from the previous call (no cursor = everything)
+    @GetMapping("/changes")
+    public TaskChanges getChanges(@RequestParam(required = false) String since,
+                                  @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        SyncCursor after = (since == null || since.isEmpty()) ? SyncCursor.START : SyncCursor.decode(since);
+
+        // One extra row tells us whether the client has to come back for more
+        List<TaskChangeRow> rows = taskRepository.findChangesByUserId(currentUserId, after.changeVersion(), after.id(), pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<TaskView> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (TaskChangeRow row : rows) {
+            if (row.isDeleted()) {
+                deleted.add(row.getId());
+            } else {
+                changed.add(row.toView());
+            }
+        }
+        SyncCursor next = rows.isEmpty() ? after : SyncCursor.after(rows.get(rows.size() - 1));
+        return new TaskChanges(changed, deleted, next.encode(), hasMore);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Task> getTask(@PathVariable Long id){
-        User currentUser = getCurrentUser();
-        Task task = taskRepository.findById(id)
+    public ResponseEntity<Task> getTask(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        if (ifNoneMatch != null) {
+            // Conditional GET: the version column alone tells us whether the client's copy is current
+            Optional<Long> version = taskRepository.findVersionByIdAndUserId(id, currentUserId);
+            if (version.isPresent() && TaskETags.matchesIfNoneMatch(ifNoneMatch, TaskETags.forTask(id, version.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(TaskETags.forTask(id, version.get()))
+                        .cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT)
+                        .build();
+            }
+        }
+        // Not from the second-level cache: this node's copy may be older than another node's write,
+        // and the ETag must describe the row as it is in the database
+        Task task = taskRepository.findUncachedById(id)
                 .orElseThrow(() -> new TaskNotFoundException("Task not found with ID: " + id));
 
-        if (!task.getUser().getId().equals(currentUser.getId())) {
+        if (!task.getUser().getId().equals(currentUserId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have access to this task");
         }
-        return ResponseEntity.ok(task);
+        return ResponseEntity.ok().eTag(TaskETags.forTask(task)).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(task);
     }
 
     // Handle GET requests to "/api/tasks/search?completed=..."
     @GetMapping("/search")
-    public List<Task> getTasksByStatus(@RequestParam boolean completed){
-        User currentUser = getCurrentUser();
-        return taskRepository.findByUserIdAndCompleted(currentUser.getId(), completed);
+    public ResponseEntity<List<TaskView>> getTasksByStatus(@RequestParam boolean completed,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        return getTaskPage(currentUserId, completed, cursor, limit, ifNoneMatch);
+    }
+
+    // Handle GET requests to "/api/tasks/search?q=..."
+    // Full-text search over the descriptions, best matches first. Paged like the listings: with more hits
+    // than fit, the response carries an X-Next-Cursor header to pass back as "cursor"
+    @GetMapping(value = "/search", params = "q")
+    public ResponseEntity<List<TaskView>> searchTasks(@RequestParam String q,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        SearchCursor after = (cursor == null || cursor.isEmpty()) ? SearchCursor.START : SearchCursor.decode(cursor);
+
+        // One extra hit tells us whether there is another page
+        List<TaskSearchHit> hits = taskSearchService.search(currentUserId, q, after, pageSize + 1);
+        boolean hasMore = hits.size() > pageSize;
+        if (hasMore) {
+            hits = hits.subList(0, pageSize);
+        }
+        List<TaskView> page = hits.stream().map(TaskSearchHit::toView).toList();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (hasMore) {
+            response.header(NEXT_CURSOR_HEADER, SearchCursor.after(hits.get(pageSize - 1)).encode());
+        }
+        return response.body(page);
+    }
+
+    private ResponseEntity<List<TaskView>> getTaskPage(Long userId, Boolean completed, String cursor, int limit, String ifNoneMatch) {
+        // Read the version BEFORE the tasks, so the ETag can never be newer than the data it describes
+        long listVersion = taskVersionService.currentVersion(userId);
+        String etag = TaskETags.forList(userId, listVersion);
+        if (TaskETags.matchesIfNoneMatch(ifNoneMatch, etag)) {
+            // Nothing changed since the client's copy: skip the task query and the serialization
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        TaskCursor after = (cursor == null || cursor.isEmpty()) ? TaskCursor.START : TaskCursor.decode(cursor);
+        // Ask for one extra row: if it comes back, we know there is another page
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        // Cached under the version in the ETag: a write anywhere makes a new version, so never a stale page
+        TaskPageCache.Key key = new TaskPageCache.Key(userId, listVersion, completed, after.completed(), after.id(), pageSize + 1);
+        List<TaskView> tasks = taskPageCache.get(key);
+        if (tasks == null) {
+            if (completed == null) {
+                tasks = taskRepository.findPageByUserId(userId, after.completed(), after.id(), fetchLimit);
+            } else {
+                // Open tasks sort before completed ones, so a cursor in the "other" status group
+                // either means "start from the beginning" or "nothing left"
+                long afterId = (completed == after.completed()) ? after.id()
+                        : completed ? 0L : Long.MAX_VALUE;
+                tasks = taskRepository.findPageByUserIdAndCompleted(userId, completed, afterId, fetchLimit);
+            }
+            taskPageCache.put(key, tasks);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT);
+        if (tasks.size() <= pageSize) {
+            return response.body(tasks);
+        }
+        List<TaskView> page = tasks.subList(0, pageSize);
+        return response
+                .header(NEXT_CURSOR_HEADER, TaskCursor.after(page.get(pageSize - 1)).encode())
+                .body(page);
     }
 
     // Handle POST requests to "/api/tasks"
+    // With an Idempotency-Key header, a retry of the same request gets the first response instead of a second task
     @PostMapping
-    public ResponseEntity<Task> createTask(@RequestBody Task task){
-        User currentUser = getCurrentUser();
-        task.setUser(currentUser);
+    public ResponseEntity<?> createTask(@RequestBody Task task,
+                                        @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey){
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        if (idempotencyKey != null) {
+            return idempotencyService.execute(currentUserId, idempotencyKey, "POST /api/tasks", task,
+                    () -> createTask(currentUserId, task));
+        }
+        return createTask(currentUserId, task);
+    }
+
+    private ResponseEntity<Task> createTask(Long currentUserId, Task task) {
         // Spring Boot takes the JSON from the request
         // and converts it into a Task object (@RequestBody).
         // We then save it to the database.
-        Task newTask = taskRepository.save(task);
+        Task newTask = taskService.create(currentUserId, task);
 
         // Return a ResponseEntity that wraps the saved task AND the "201 Created" status
-        return ResponseEntity.status(HttpStatus.CREATED).body(newTask);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(TaskETags.forTask(newTask)).body(newTask);
+    }
+
+    // Handle POST requests to "/api/tasks/batch"
+    // Applies many create/update/delete operations in one round-trip; each one gets its own result.
+    // Takes an Idempotency-Key header too: a retried batch is not applied twice
+    @PostMapping("/batch")
+    public ResponseEntity<?> batchTasks(@RequestBody List<TaskBatchOperation> operations,
+                                        @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey){
+        if (operations.size() > TaskBatchService.MAX_OPERATIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch can contain at most " + TaskBatchService.MAX_OPERATIONS + " operations");
+        }
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        if (idempotencyKey != null) {
+            return idempotencyService.execute(currentUserId, idempotencyKey, "POST /api/tasks/batch", operations,
+                    () -> ResponseEntity.ok(taskBatchService.apply(currentUserId, operations)));
+        }
+        return ResponseEntity.ok(taskBatchService.apply(currentUserId, operations));
     }
 
     // Handle DELETE requests to "/api/tasks/{id}"
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTask(@PathVariable Long id){
-        User currentUser = getCurrentUser();
-        Task task = taskRepository.findById(id)
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Task not found"));
-
-        if (!task.getUser().getId().equals(currentUser.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to delete this task");
-        }
-        taskRepository.deleteById(id);
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        taskService.delete(currentUserId, id);
         return ResponseEntity.ok().build();
     }
 
     // Handle PUT requests to "/api/tasks/{id}"
+    // With an If-Match header (the task's ETag) the update only happens if nobody changed the task
+    // in the meantime; otherwise the client gets 412 instead of silently overwriting someone else's change.
+    // With "Prefer: respond-async", a change of just the status (a checkbox click) is queued instead, when the
+    // write-behind queue is enabled: 202 with the task as it will be, and the database write happens shortly after
     @PutMapping("/{id}")
-    public ResponseEntity<Task> updateTask(@PathVariable Long id, @RequestBody Task updatedTaskData){
-        User currentUser = getCurrentUser();
-        // 1. Find the existing task in the database, or throw an error if it's not found.
-        Task existingTask = taskRepository.findById(id)
-                .orElseThrow(() -> new TaskNotFoundException("Task not found with ID: " + id));
-        // Security Check: Does this task belong to the current user?
-        if (!existingTask.getUser().getId().equals(currentUser.getId())){
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to update this task");
+    public ResponseEntity<Task> updateTask(@PathVariable Long id, @RequestBody Task updatedTaskData,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           @RequestHeader(value = PREFER_HEADER, required = false) String prefer){
+        if (ifMatch == null && prefersAsync(prefer) && taskCompletionQueue.isEnabled()) {
+            Long currentUserId = getCurrentUserId();
+            // From the database, not the second-level cache: another node may have changed the text since this
+            // node cached it, and a toggle is only accepted against the text as it really is
+            Task current = taskRepository.findUncachedById(id)
+                    .orElseThrow(() -> new TaskNotFoundException("Task not found with ID: " + id));
+            if (!current.getUser().getId().equals(currentUserId)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to update this task");
+            }
+            // Pending toggles never change the description, so the stored one is still the current one
+            if (Objects.equals(current.getDescription(), updatedTaskData.getDescription())) {
+                taskCompletionQueue.submit(currentUserId, id, updatedTaskData.isCompleted());
+                Task accepted = new Task();
+                accepted.setId(id);
+                accepted.setDescription(current.getDescription());
+                accepted.setCompleted(updatedTaskData.isCompleted());
+                // No ETag: the new version only exists once the toggle is written
+                return ResponseEntity.accepted().header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC).body(accepted);
+            }
+            // The text changed too: that is a normal update
         }
 
-        // 2. Update the fields of the *existing* task with the *new* data.
-        existingTask.setDescription(updatedTaskData.getDescription());
-        existingTask.setCompleted(updatedTaskData.isCompleted());
-        // 3. Save the updated task; save() will perform an UPDATE, not a new INSERT, due to existing ID
-        Task updatedTask = taskRepository.save(existingTask);
-        return ResponseEntity.ok(updatedTask);
+        Long currentUserId = getCurrentUserIdWithPendingWrites();
+        Long expectedVersion = null;
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            Long version = TaskETags.versionFromIfMatch(ifMatch, id);
+            // A tag that isn't one of this task's can never match
+            expectedVersion = (version != null) ? version : -1L;
+        }
+        Task updatedTask = taskService.update(currentUserId, id, updatedTaskData, expectedVersion);
+        return ResponseEntity.ok().eTag(TaskETags.forTask(updatedTask)).body(updatedTask);
+    }
+
+    // Prefer (RFC 7240) may list several preferences: "respond-async, wait=10"
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().toLowerCase(Locale.ROOT).startsWith(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,62 @@
+package com.rsandoval.todo_api.controller;
+
+import com.rsandoval.todo_api.model.Task;
+
+// Builds and reads the (strong) ETags used by TaskController.
+//   Task lists:  "tasks-<userId>-<listVersion>"  changes whenever any task of the user changes
+//   One task:    "task-<taskId>-<taskVersion>"   changes whenever that task changes
+final class TaskETags {
+
+    private TaskETags() {}
+
+    static String forList(Long userId, long listVersion) {
+        return "\"tasks-" + userId + "-" + listVersion + "\"";
+    }
+
+    static String forTask(Long taskId, long taskVersion) {
+        return "\"task-" + taskId + "-" + taskVersion + "\"";
+    }
+
+    static String forTask(Task task) {
+        return forTask(task.getId(), task.getVersion());
+    }
+
+    // If-None-Match uses weak comparison: W/"x" matches "x", and "*" matches anything
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns the task version an If-Match header asks for, or null if it can't match this task
+    // (wrong task, garbage). "*" is handled by the caller.
+    // Our own tags also count in their weak form: ResponseCompressionFilter weakens them on compressed
+    // responses, but the version in them names the row exactly, whatever the encoding of the body was
+    static Long versionFromIfMatch(String ifMatch, Long taskId) {
+        String prefix = "\"task-" + taskId + "-";
+        for (String candidate : ifMatch.split(",")) {
+            String etag = candidate.trim();
+            if (etag.startsWith("W/")) {
+                etag = etag.substring(2);
+            }
+            if (etag.startsWith(prefix) && etag.endsWith("\"") && etag.length() > prefix.length() + 1) {
+                try {
+                    return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+                } catch (NumberFormatException e) {
+                    // Not one of ours; keep looking
+                }
+            }
+        }
+        return null;
+    }
+}
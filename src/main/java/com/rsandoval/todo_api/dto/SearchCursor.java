@@ -0,0 +1,37 @@
+package com.rsandoval.todo_api.dto;
+
+import com.rsandoval.todo_api.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in ranked search results, sorted by (rank descending, id): "the last hit the client has already seen".
+// The rank travels as its exact float bits, so the next page compares against precisely the same value.
+public record SearchCursor(float rank, long id) {
+
+    // Before the first hit: every real rank is below infinity
+    public static final SearchCursor START = new SearchCursor(Float.POSITIVE_INFINITY, 0L);
+
+    public static SearchCursor after(TaskSearchHit hit) {
+        return new SearchCursor(hit.getRank(), hit.getId());
+    }
+
+    public String encode() {
+        String raw = Integer.toHexString(Float.floatToIntBits(rank)) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            float rank = Float.intBitsToFloat(Integer.parseUnsignedInt(raw.substring(0, separator), 16));
+            if (Float.isNaN(rank)) {
+                throw new IllegalArgumentException("Not a rank");
+            }
+            return new SearchCursor(rank, Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
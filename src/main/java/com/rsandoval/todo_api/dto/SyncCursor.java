@@ -0,0 +1,33 @@
+package com.rsandoval.todo_api.dto;
+
+import com.rsandoval.todo_api.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in a user's change feed: "the last change the client has already applied".
+// A batch stamps several rows with the same change version, so the task id breaks ties.
+public record SyncCursor(long changeVersion, long id) {
+
+    // Before any change: a client without a cursor gets everything
+    public static final SyncCursor START = new SyncCursor(0L, 0L);
+
+    public static SyncCursor after(TaskChangeRow row) {
+        return new SyncCursor(row.getChangeVersion(), row.getId());
+    }
+
+    public String encode() {
+        String raw = changeVersion + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SyncCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new SyncCursor(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.rsandoval.todo_api.dto;
+
+// One entry of a POST /api/tasks/batch request.
+// CREATE uses description/completed, UPDATE needs id plus the new values, DELETE only needs id.
+public record TaskBatchOperation(Type op, Long id, String description, Boolean completed) {
+
+    public enum Type { CREATE, UPDATE, DELETE }
+}
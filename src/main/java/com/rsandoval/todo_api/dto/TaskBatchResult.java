@@ -0,0 +1,23 @@
+package com.rsandoval.todo_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.rsandoval.todo_api.model.Task;
+import org.springframework.http.HttpStatus;
+
+// Outcome of a single batch operation, in the same position as the operation in the request.
+// "status" is the HTTP status the equivalent single-task call would have returned.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskBatchResult(TaskBatchOperation.Type op, Long id, int status, Task task, String error) {
+
+    public static TaskBatchResult success(TaskBatchOperation.Type op, HttpStatus status, Task task) {
+        return new TaskBatchResult(op, task.getId(), status.value(), task, null);
+    }
+
+    public static TaskBatchResult deleted(Long id) {
+        return new TaskBatchResult(TaskBatchOperation.Type.DELETE, id, HttpStatus.OK.value(), null, null);
+    }
+
+    public static TaskBatchResult failure(TaskBatchOperation.Type op, Long id, HttpStatus status, String error) {
+        return new TaskBatchResult(op, id, status.value(), null, error);
+    }
+}
@@ -0,0 +1,20 @@
+package com.rsandoval.todo_api.dto;
+
+// One row of the delta-sync query (see TaskRepository.findChangesByUserId). An interface projection
+// because that query is native (it has to see tombstones), and Spring Data maps the columns onto these getters.
+public interface TaskChangeRow {
+
+    Long getId();
+
+    String getDescription();
+
+    boolean isCompleted();
+
+    boolean isDeleted();
+
+    long getChangeVersion();
+
+    default TaskView toView() {
+        return new TaskView(getId(), getDescription(), isCompleted());
+    }
+}
@@ -0,0 +1,9 @@
+package com.rsandoval.todo_api.dto;
+
+import java.util.List;
+
+// Response of GET /api/tasks/changes: tasks created or updated since the client's cursor,
+// ids of tasks deleted since then, and the cursor to send next time.
+// hasMore means the client should immediately ask again with the new cursor.
+public record TaskChanges(List<TaskView> changed, List<Long> deleted, String cursor, boolean hasMore) {
+}
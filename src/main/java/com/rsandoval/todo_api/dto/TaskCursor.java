@@ -0,0 +1,37 @@
+package com.rsandoval.todo_api.dto;
+
+import com.rsandoval.todo_api.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in a task listing sorted by (completed, id): "the last row the client has already seen".
+// Clients only ever get the encoded form, so we are free to change its contents later.
+public record TaskCursor(boolean completed, long id) {
+
+    // Before the first row: ids start at 1 and open tasks sort first
+    public static final TaskCursor START = new TaskCursor(false, 0L);
+
+    public static TaskCursor after(TaskView task) {
+        return new TaskCursor(task.completed(), task.id());
+    }
+
+    public String encode() {
+        String raw = (completed ? "1" : "0") + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            String completed = raw.substring(0, separator);
+            if (!completed.equals("0") && !completed.equals("1")) {
+                throw new IllegalArgumentException("Unexpected status flag");
+            }
+            return new TaskCursor(completed.equals("1"), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.rsandoval.todo_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.rsandoval.todo_api.model.Task;
+
+// What a client subscribed to /api/tasks/stream receives for each change: the task as it is now
+// (created/updated), or just its id (deleted). The SSE event name is the type.
+// A snapshot, not the entity itself, because it's sent from another thread after the transaction ended.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskEvent(@JsonIgnore Type type, Long id, String description, Boolean completed) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED;
+
+        public String eventName() {
+            return name().toLowerCase();
+        }
+    }
+
+    public static TaskEvent created(Task task) {
+        return new TaskEvent(Type.CREATED, task.getId(), task.getDescription(), task.isCompleted());
+    }
+
+    public static TaskEvent updated(Task task) {
+        return new TaskEvent(Type.UPDATED, task.getId(), task.getDescription(), task.isCompleted());
+    }
+
+    public static TaskEvent deleted(Long id) {
+        return new TaskEvent(Type.DELETED, id, null, null);
+    }
+}
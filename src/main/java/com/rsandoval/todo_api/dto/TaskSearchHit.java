@@ -0,0 +1,17 @@
+package com.rsandoval.todo_api.dto;
+
+// One row of the full-text search query (see TaskRepository.searchByUserId): the task plus how well it matched
+public interface TaskSearchHit {
+
+    Long getId();
+
+    String getDescription();
+
+    boolean isCompleted();
+
+    float getRank();
+
+    default TaskView toView() {
+        return new TaskView(getId(), getDescription(), isCompleted());
+    }
+}
@@ -0,0 +1,14 @@
+package com.rsandoval.todo_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Response of GET /api/tasks/stats. "daily" is only there when the client asked for it (?days=N):
+// one entry per UTC day, oldest first, today last, days without completions included as 0.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskStatistics(long total, long completed, long open, List<Day> daily) {
+
+    public record Day(LocalDate date, long completed) {}
+}
@@ -0,0 +1,7 @@
+package com.rsandoval.todo_api.dto;
+
+// A task as the read endpoints return it: exactly the fields the Task entity exposes as JSON, in the same order.
+// Listings are queried straight into these ("SELECT new ..."), so the rows never become managed entities:
+// no persistence context entries, no dirty-checking snapshots, nothing to flush.
+public record TaskView(Long id, String description, boolean completed) {
+}
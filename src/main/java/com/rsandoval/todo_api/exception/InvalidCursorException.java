@@ -0,0 +1,12 @@
+package com.rsandoval.todo_api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// A continuation token we didn't issue (or that got mangled) is the client's fault: 400 BAD REQUEST
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
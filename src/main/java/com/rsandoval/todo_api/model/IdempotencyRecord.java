@@ -0,0 +1,44 @@
+package com.rsandoval.todo_api.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+// The response a request with an Idempotency-Key header got, kept so a retry of it can get the same one.
+// Keys are per user: two users can pick the same key without seeing each other's responses
+@Entity
+@Table(name = "idempotency_key")
+@IdClass(IdempotencyRecord.Key.class)
+public class IdempotencyRecord {
+
+    public record Key(Long userId, String idempotencyKey) implements Serializable {}
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    // SHA-256 of the endpoint and the request body: the same key with a different request is refused
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    private Integer status;
+    private String etag;
+    // The response body as it was sent, JSON (a text column)
+    private String body;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public Long getUserId() { return userId; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public String getRequestHash() { return requestHash; }
+    public Integer getStatus() { return status; }
+    public String getEtag() { return etag; }
+    public String getBody() { return body; }
+    public Instant getCreatedAt() { return createdAt; }
+}
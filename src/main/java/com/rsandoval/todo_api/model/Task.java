@@ -2,17 +2,46 @@ package com.rsandoval.todo_api.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
 
 @Entity
+// Table and indexes are defined by the migrations in db/migration
+// Deleted tasks stay behind as tombstones for sync clients; everywhere else they simply don't exist
+@SQLRestriction("deleted = false")
+// Second-level cache (see ehcache.xml). The cache does NOT apply the restriction above, so tombstones
+// are kept out of it: deletes go through TaskCacheInvalidator and delta sync only reads a projection
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "task")
 public class Task {
 
+    // Sequence (not IDENTITY) so Hibernate knows the id before inserting and can batch the INSERTs;
+    // each nextval hands out a block of 50 ids
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = 50)
     private Long id; // A unique ID for each task
 
     private String description; // The text of the to-do item
     private boolean completed = false; // a flag to see if it's done
 
+    // Optimistic locking: bumped on every update, exposed to clients only through the ETag header
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private long version;
+
+    // Delta sync: the user's task list version (see TaskListVersion) of the last change to this row
+    @Column(name = "change_version", nullable = false)
+    @JsonIgnore
+    private long changeVersion;
+
+    // Soft delete: a deleted task keeps its id and change version so clients can learn it is gone
+    @Column(nullable = false)
+    @JsonIgnore
+    private boolean deleted;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false) // Creates a foreign key column
     @JsonIgnore // CRITICAL: Do not include the User data in the Task JSON response
@@ -27,6 +56,14 @@ public class Task {
     public boolean isCompleted() { return completed; }
     public void setCompleted(boolean completed){ this.completed = completed; }
 
+    public long getVersion() { return version; }
+
+    public long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(long changeVersion) { this.changeVersion = changeVersion; }
+
+    public boolean isDeleted() { return deleted; }
+    public void setDeleted(boolean deleted) { this.deleted = deleted; }
+
     public User getUser() {
         return user;
     }
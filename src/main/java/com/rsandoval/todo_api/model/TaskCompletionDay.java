@@ -0,0 +1,35 @@
+package com.rsandoval.todo_api.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// How many times a user marked a task as completed on a given (UTC) day. Only ever counts up:
+// reopening or deleting a task later doesn't take back the completion it already recorded.
+@Entity
+@Table(name = "task_completion_day")
+@IdClass(TaskCompletionDay.Key.class)
+public class TaskCompletionDay {
+
+    public record Key(Long userId, LocalDate day) implements Serializable {}
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long completions;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public long getCompletions() { return completions; }
+    public void setCompletions(long completions) { this.completions = completions; }
+}
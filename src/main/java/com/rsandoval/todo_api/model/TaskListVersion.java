@@ -0,0 +1,23 @@
+package com.rsandoval.todo_api.model;
+
+import jakarta.persistence.*;
+
+// One row per user, bumped every time any of their tasks is created, updated or deleted.
+// Lets us answer "has anything changed?" for a whole task list without reading the tasks.
+@Entity
+@Table(name = "task_list_version")
+public class TaskListVersion {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long version;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+}
@@ -0,0 +1,30 @@
+package com.rsandoval.todo_api.model;
+
+import jakarta.persistence.*;
+
+// One row per user with the counts behind GET /api/tasks/stats. Kept up to date by every task write
+// (see TaskStatsService), in the same transaction, so reading the numbers never has to count tasks.
+@Entity
+@Table(name = "task_stats")
+public class TaskStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // Tasks that exist (tombstones don't count) and how many of them are completed
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long completed;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public long getCompleted() { return completed; }
+    public void setCompleted(long completed) { this.completed = completed; }
+}
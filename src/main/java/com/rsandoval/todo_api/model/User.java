@@ -1,9 +1,13 @@
 package com.rsandoval.todo_api.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "users") // CRITICAL: "user" is a reserved word in Postgres
+@Cacheable // Second-level cache, see ehcache.xml
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 public class User {
 
     @Id
@@ -0,0 +1,49 @@
+package com.rsandoval.todo_api.repository;
+
+import com.rsandoval.todo_api.model.IdempotencyRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+// Same as TaskStatsRepository: the native writes name their table (HINT_NATIVE_SPACES) so they leave
+// the second-level cache alone
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    // Takes the key for the current request, unless someone else already has it (an expired row is taken over).
+    // Returns 1 if we got it. If another transaction claimed it and hasn't committed yet, this waits for it:
+    // that is what keeps two nodes from running the same request twice
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_key"))
+    @Query(value = """
+            INSERT INTO idempotency_key (user_id, idempotency_key, request_hash, created_at)
+            VALUES (:userId, :key, :requestHash, :now)
+            ON CONFLICT (user_id, idempotency_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash, status = NULL, etag = NULL, body = NULL,
+                    created_at = EXCLUDED.created_at
+                WHERE idempotency_key.created_at < :expiredBefore
+            """, nativeQuery = true)
+    int claim(Long userId, String key, String requestHash, Instant now, Instant expiredBefore);
+
+    // Stores the response, in the same transaction as the claim and the work itself
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_key"))
+    @Query(value = """
+            UPDATE idempotency_key SET status = :status, etag = :etag, body = :body
+            WHERE user_id = :userId AND idempotency_key = :key
+            """, nativeQuery = true)
+    int complete(Long userId, String key, int status, String etag, String body);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_key"))
+    @Query(value = "DELETE FROM idempotency_key WHERE created_at < :expiredBefore", nativeQuery = true)
+    int deleteExpired(Instant expiredBefore);
+}
@@ -0,0 +1,27 @@
+package com.rsandoval.todo_api.repository;
+
+import com.rsandoval.todo_api.model.TaskCompletionDay;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TaskCompletionDayRepository extends JpaRepository<TaskCompletionDay, TaskCompletionDay.Key> {
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "task_completion_day"))
+    @Query(value = """
+            INSERT INTO task_completion_day (user_id, day, completions) VALUES (:userId, :day, :count)
+            ON CONFLICT (user_id, day) DO UPDATE SET completions = task_completion_day.completions + :count
+            """, nativeQuery = true)
+    void add(Long userId, LocalDate day, long count);
+
+    List<TaskCompletionDay> findByUserIdAndDayGreaterThanEqualOrderByDayAsc(Long userId, LocalDate from);
+}
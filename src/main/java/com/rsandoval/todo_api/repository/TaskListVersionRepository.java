@@ -0,0 +1,29 @@
+package com.rsandoval.todo_api.repository;
+
+import com.rsandoval.todo_api.model.TaskListVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface TaskListVersionRepository extends JpaRepository<TaskListVersion, Long> {
+
+    // Atomic "version++" that also creates the row on a user's first write, returning the new version.
+    // The row stays locked until the surrounding transaction ends, which orders a user's writes.
+    @Transactional
+    @Query(value = """
+            INSERT INTO task_list_version (user_id, version) VALUES (:userId, 1)
+            ON CONFLICT (user_id) DO UPDATE SET version = task_list_version.version + 1
+            RETURNING version
+            """, nativeQuery = true)
+    long increment(Long userId);
+
+    // Takes the same row lock without changing the version (creating the row at 0 if needed), returning the version.
+    // For writes that only know after looking at the tasks whether they change anything
+    @Transactional
+    @Query(value = """
+            INSERT INTO task_list_version (user_id, version) VALUES (:userId, 0)
+            ON CONFLICT (user_id) DO UPDATE SET version = task_list_version.version
+            RETURNING version
+            """, nativeQuery = true)
+    long lock(Long userId);
+}
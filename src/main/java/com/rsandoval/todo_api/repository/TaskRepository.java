@@ -1,18 +1,148 @@
 package com.rsandoval.todo_api.repository;
 
+import com.rsandoval.todo_api.dto.TaskChangeRow;
+import com.rsandoval.todo_api.dto.TaskSearchHit;
+import com.rsandoval.todo_api.dto.TaskView;
 import com.rsandoval.todo_api.model.Task;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
 
-    List<Task> findByCompleted (boolean completed);
-
     List<Task> findByUserId(Long userId, Sort sort);
     // Version of the original method that is user-specific
     List<Task> findByUserIdAndCompleted(Long userId, boolean completed);
+
+    // Keyset pagination: the next page starts right after the (completed, id) of the last row the client saw,
+    // so the database seeks straight to it in idx_task_user_completed_id instead of skipping over every earlier row.
+    // Read-only: the rows come back as TaskViews, never as managed entities.
+    // Pages are cached by TaskPageCache, under the user's list version (not in Hibernate's query cache, which
+    // only knows about this node's writes)
+    @Query("""
+            SELECT new com.rsandoval.todo_api.dto.TaskView(t.id, t.description, t.completed) FROM Task t
+            WHERE t.user.id = :userId
+              AND (t.completed, t.id) > (:afterCompleted, :afterId)
+            ORDER BY t.completed ASC, t.id ASC
+            """)
+    List<TaskView> findPageByUserId(Long userId, boolean afterCompleted, Long afterId, Limit limit);
+
+    // Same as above with the status filter folded in; within one status the order is just by id
+    @Query("""
+            SELECT new com.rsandoval.todo_api.dto.TaskView(t.id, t.description, t.completed) FROM Task t
+            WHERE t.user.id = :userId AND t.completed = :completed AND t.id > :afterId
+            ORDER BY t.id ASC
+            """)
+    List<TaskView> findPageByUserIdAndCompleted(Long userId, boolean completed, Long afterId, Limit limit);
+
+    // Walks every task of a user through a JDBC cursor, 500 rows per round-trip.
+    // Must be consumed inside a transaction and closed afterwards (try-with-resources).
+    // As TaskViews, so the persistence context stays empty however long the export runs
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new com.rsandoval.todo_api.dto.TaskView(t.id, t.description, t.completed) FROM Task t
+            WHERE t.user.id = :userId ORDER BY t.id ASC
+            """)
+    Stream<TaskView> streamByUserId(Long userId);
+
+    // Full-text search, best matches first. :query is a to_tsquery expression (see TaskSearchService).
+    // The @@ match is answered by the GIN index idx_task_description_search (V4 migration), so only
+    // matching rows are read and ranked; keyset pagination continues after the (rank, id) of the last hit seen
+    @Query(value = """
+            SELECT id, description, completed, rank FROM (
+                SELECT id, description, completed,
+                       ts_rank(to_tsvector('simple', coalesce(description, '')), query) AS rank
+                FROM task, to_tsquery('simple', :query) AS query
+                WHERE to_tsvector('simple', coalesce(description, '')) @@ query
+                  AND user_id = :userId AND deleted = false
+            ) AS hits
+            WHERE rank < :afterRank OR (rank = :afterRank AND id > :afterId)
+            ORDER BY rank DESC, id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TaskSearchHit> searchByUserId(Long userId, String query, float afterRank, long afterId, int limit);
+
+    // Ownership check and write in ONE statement: only touches the row if it belongs to the user.
+    // Returns the updated row, or nothing if the task doesn't exist or isn't theirs.
+    @Transactional
+    @Query(value = """
+            UPDATE task SET description = :description, completed = :completed,
+                            version = version + 1, change_version = :changeVersion
+            WHERE id = :id AND user_id = :userId AND deleted = false
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Task> updateByIdAndUserId(Long id, Long userId, String description, boolean completed, long changeVersion);
+
+    // Same, but only if nobody changed the task since the client read it (HTTP If-Match)
+    @Transactional
+    @Query(value = """
+            UPDATE task SET description = :description, completed = :completed,
+                            version = version + 1, change_version = :changeVersion
+            WHERE id = :id AND user_id = :userId AND version = :expectedVersion AND deleted = false
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Task> updateByIdAndUserIdAndVersion(Long id, Long userId, long expectedVersion,
+                                                 String description, boolean completed, long changeVersion);
+
+    // Only the status, and only if it really changes: a task toggled back and forth ends up untouched.
+    // Returns the updated row, or nothing if there was nothing to change (or the task isn't theirs / is gone)
+    @Transactional
+    @Query(value = """
+            UPDATE task SET completed = :completed, version = version + 1, change_version = :changeVersion
+            WHERE id = :id AND user_id = :userId AND deleted = false AND completed <> :completed
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<Task> updateCompletedByIdAndUserId(Long id, Long userId, boolean completed, long changeVersion);
+
+    // The tasks of a batch, always from the database: the second-level cache of this node may be behind another
+    // node's writes, and a stale @Version would fail the whole batch when it is flushed
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"))
+    List<Task> findAllByIdIn(Collection<Long> ids);
+
+    // One task, always from the database: its version goes out as an ETag, and this node's second-level cache
+    // may be behind another node's writes
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"))
+    Optional<Task> findUncachedById(Long id);
+
+    // Just the version of one of the user's tasks: enough to answer a conditional GET
+    @Query("SELECT t.version FROM Task t WHERE t.id = :id AND t.user.id = :userId")
+    Optional<Long> findVersionByIdAndUserId(Long id, Long userId);
+
+    // Soft delete in one statement: turns the task into a tombstone (the text is dropped) if it belongs to the user.
+    // Returns whether the task was completed (for the stats), or nothing if the task doesn't exist or isn't theirs.
+    // Run as a query rather than @Modifying: Hibernate would wipe the whole task cache region after
+    // every native executeUpdate, where TaskCacheInvalidator only drops this one task
+    @Transactional
+    @Query(value = """
+            UPDATE task SET deleted = true, description = NULL,
+                            version = version + 1, change_version = :changeVersion
+            WHERE id = :id AND user_id = :userId AND deleted = false
+            RETURNING completed
+            """, nativeQuery = true)
+    Optional<Boolean> markDeletedByIdAndUserId(Long id, Long userId, long changeVersion);
+
+    // Delta sync: everything (tombstones included) that changed after the given position,
+    // in (change_version, id) order. Served by idx_task_user_change_version.
+    // Only the columns sync needs, as a projection: no entities, so nothing lands in the second-level cache
+    // either (tombstones must never end up there, see Task)
+    @Query(value = """
+            SELECT id, description, completed, deleted, change_version AS "changeVersion" FROM task
+            WHERE user_id = :userId AND (change_version, id) > (:afterVersion, :afterId)
+            ORDER BY change_version ASC, id ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TaskChangeRow> findChangesByUserId(Long userId, long afterVersion, long afterId, int limit);
 }
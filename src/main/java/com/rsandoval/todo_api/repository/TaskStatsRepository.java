@@ -0,0 +1,39 @@
+package com.rsandoval.todo_api.repository;
+
+import com.rsandoval.todo_api.model.TaskStats;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+// The native writes below name the one table they touch (HINT_NATIVE_SPACES). Without that, Hibernate assumes
+// a native UPDATE could have changed anything and empties the whole second-level cache after each of them.
+public interface TaskStatsRepository extends JpaRepository<TaskStats, Long> {
+
+    // Atomic "counts += deltas" that also creates the row on a user's first write
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "task_stats"))
+    @Query(value = """
+            INSERT INTO task_stats (user_id, total, completed) VALUES (:userId, :totalDelta, :completedDelta)
+            ON CONFLICT (user_id) DO UPDATE SET total = task_stats.total + :totalDelta,
+                                                completed = task_stats.completed + :completedDelta
+            """, nativeQuery = true)
+    void add(Long userId, long totalDelta, long completedDelta);
+
+    // Moves one task between open and completed, but only if it is the user's and its status really changes.
+    // Returns 1 if it did. Must run BEFORE the task itself is updated, while the row still has the old status
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "task_stats"))
+    @Query(value = """
+            UPDATE task_stats SET completed = completed + CASE WHEN :completed THEN 1 ELSE -1 END
+            WHERE user_id = :userId
+              AND EXISTS (SELECT 1 FROM task
+                          WHERE id = :taskId AND user_id = :userId AND deleted = false AND completed <> :completed)
+            """, nativeQuery = true)
+    int changeCompleted(Long userId, Long taskId, boolean completed);
+}
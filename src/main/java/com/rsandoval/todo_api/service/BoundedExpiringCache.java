@@ -0,0 +1,118 @@
+package com.rsandoval.todo_api.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+// A ConcurrentHashMap with a size bound, where every entry expires at its own time.
+// Reads and writes are plain map operations. Only a put that finds the cache full makes room, all at once:
+// expired entries go first, then arbitrary ones until the cache is down to 90% of its size. So the scan happens
+// once per tenth of the capacity rather than on every put, and only one thread does it at a time (the others
+// go ahead meanwhile, which may take the cache a few entries over its size for that long).
+// Entries the keep predicate holds on to are never evicted before they expire.
+public class BoundedExpiringCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final int evictTo;
+    private final Predicate<? super V> keep;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedExpiringCache(int maxEntries) {
+        this(maxEntries, value -> false);
+    }
+
+    public BoundedExpiringCache(int maxEntries, Predicate<? super V> keep) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive");
+        this.maxEntries = maxEntries;
+        this.evictTo = maxEntries - Math.max(1, maxEntries / 10);
+        this.keep = keep;
+    }
+
+    // The value, or null if there is none (or it has expired)
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        makeRoom();
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    // Stores the value unless there is a live one already; returns that one, or null if ours was stored
+    public V putIfAbsent(K key, V value, long expiresAtMillis) {
+        makeRoom();
+        Entry<V> mine = new Entry<>(value, expiresAtMillis);
+        long now = System.currentTimeMillis();
+        Entry<V> current = entries.compute(key, (k, existing) -> existing == null || existing.isExpired(now) ? mine : existing);
+        return current == mine ? null : current.value();
+    }
+
+    public boolean remove(K key) {
+        return entries.remove(key) != null;
+    }
+
+    // Only if the key still maps to this value
+    public boolean remove(K key, V value) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.value() == value && entries.remove(key, entry);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+    public int size() { return entries.size(); }
+
+    private void makeRoom() {
+        if (entries.size() < maxEntries || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> {
+                boolean expired = entry.isExpired(now);
+                if (expired) evictions.increment();
+                return expired;
+            });
+            Iterator<Entry<V>> values = entries.values().iterator();
+            while (entries.size() > evictTo && values.hasNext()) {
+                if (!keep.test(values.next().value())) {
+                    values.remove();
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
@@ -1,32 +1,49 @@
 package com.rsandoval.todo_api.service;
 
+import com.rsandoval.todo_api.config.AuthenticatedUser;
 import com.rsandoval.todo_api.model.User;
 import com.rsandoval.todo_api.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserIdentityCache userIdentityCache;
 
-    public CustomUserDetailsService(UserRepository userRepository){
+    public CustomUserDetailsService(UserRepository userRepository, UserIdentityCache userIdentityCache){
         this.userRepository = userRepository;
+        this.userIdentityCache = userIdentityCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Find user in our database
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        UserIdentityCache.UserIdentity identity = userIdentityCache.get(username);
+        if (identity == null) {
+            // Find user in our database
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+            identity = UserIdentityCache.UserIdentity.of(user);
+            userIdentityCache.put(identity);
+        }
 
-        // Translate into a Spring Security "UserDetails" object
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRole())
-                .build();
+        // Translate into a Spring Security "UserDetails" object that also remembers our user id
+        return new AuthenticatedUser(identity.id(), identity.username(), identity.passwordHash(), identity.role());
+    }
+
+    // Called by Spring Security after a successful login whose stored hash used a different BCrypt cost
+    // than the one configured now; newPassword is the same password hashed at the current cost
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByUsername(user.getUsername(), newPassword);
+        userIdentityCache.invalidate(user.getUsername());
+        if (user instanceof AuthenticatedUser authenticated) {
+            return new AuthenticatedUser(authenticated.getId(), authenticated.getUsername(), newPassword, authenticated.getRole());
+        }
+        return loadUserByUsername(user.getUsername());
     }
 }
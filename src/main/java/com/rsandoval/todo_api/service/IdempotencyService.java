@@ -0,0 +1,239 @@
+package com.rsandoval.todo_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsandoval.todo_api.model.IdempotencyRecord;
+import com.rsandoval.todo_api.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Idempotency-Key header for the endpoints that create things (POST /api/tasks, POST /api/tasks/batch).
+// A client that retries a request with the same key gets the response of the first one instead of a second task.
+// Responses are remembered for the TTL, in two places:
+// - in memory on this node (a BoundedExpiringCache): a retry is answered without touching the database.
+//   A request that is still running is in there too, so duplicates arriving meanwhile wait for it and share its
+//   response instead of running again
+// - in the idempotency_key table, claimed and filled in by the same transaction as the work itself. That covers
+//   retries that land on another node, or come after a restart: a duplicate that is still running elsewhere
+//   waits on the row lock, and only one of them ever commits
+// Only successful responses are stored. A request that fails leaves no trace, so retrying it runs it again.
+@Service
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    // Set on responses that were replayed rather than produced by this request
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private record StoredResponse(String requestHash, int status, String eTag, String body) {
+        static StoredResponse of(IdempotencyRecord record) {
+            return new StoredResponse(record.getRequestHash(), record.getStatus(), record.getEtag(), record.getBody());
+        }
+    }
+
+    // What the transaction in execute() came up with: our own response, or the one someone else stored first
+    private record Outcome(ResponseEntity<?> response, StoredResponse stored) {}
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration purgeInterval;
+
+    // Responses of this node's requests, and the ones still running (never evicted: duplicates wait on them)
+    private final BoundedExpiringCache<IdempotencyRecord.Key, CompletableFuture<StoredResponse>> entries;
+    private ScheduledExecutorService purger;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayedFromMemory = new LongAdder();
+    private final LongAdder replayedFromDatabase = new LongAdder();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${todo.idempotency.max-size:10000}") int maxEntries,
+                              @Value("${todo.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${todo.idempotency.purge-interval:1h}") Duration purgeInterval,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.entries = new BoundedExpiringCache<>(maxEntries, response -> !response.isDone());
+        this.ttl = ttl;
+        this.purgeInterval = purgeInterval;
+
+        // Same tag keys on every series, or Prometheus refuses all but the first
+        FunctionCounter.builder("idempotency.requests", executed, LongAdder::sum)
+                .tag("result", "executed").tag("source", "none").register(meterRegistry);
+        FunctionCounter.builder("idempotency.requests", replayedFromMemory, LongAdder::sum)
+                .tag("result", "replayed").tag("source", "memory").register(meterRegistry);
+        FunctionCounter.builder("idempotency.requests", replayedFromDatabase, LongAdder::sum)
+                .tag("result", "replayed").tag("source", "database").register(meterRegistry);
+        Gauge.builder("idempotency.cache.size", entries, BoundedExpiringCache::size).register(meterRegistry);
+    }
+
+    // Runs the request (action) once per (user, key). The endpoint and the request body identify the request:
+    // reusing a key for a different one is refused with 422
+    public ResponseEntity<?> execute(Long userId, String key, String endpoint, Object request,
+                                     Supplier<? extends ResponseEntity<?>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(endpoint, request);
+        IdempotencyRecord.Key id = new IdempotencyRecord.Key(userId, key);
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = entries.putIfAbsent(id, mine, System.currentTimeMillis() + ttl.toMillis());
+        if (existing != null) {
+            // Done already, or still running on another thread: either way, its response is ours
+            StoredResponse stored = await(existing);
+            replayedFromMemory.increment();
+            return replay(stored, requestHash);
+        }
+        return run(id, requestHash, action, mine);
+    }
+
+    private ResponseEntity<?> run(IdempotencyRecord.Key id, String requestHash,
+                                  Supplier<? extends ResponseEntity<?>> action, CompletableFuture<StoredResponse> mine) {
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> {
+                Instant now = Instant.now();
+                if (idempotencyRecordRepository.claim(id.userId(), id.idempotencyKey(), requestHash,
+                        now, now.minus(ttl)) == 0) {
+                    // Somebody has the key already, and their transaction has committed by now (claim waited for it)
+                    IdempotencyRecord record = idempotencyRecordRepository.findById(id).orElseThrow();
+                    return new Outcome(null, StoredResponse.of(record));
+                }
+                ResponseEntity<?> response = action.get();
+                StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+                        response.getHeaders().getETag(), toJson(response.getBody()));
+                idempotencyRecordRepository.complete(id.userId(), id.idempotencyKey(),
+                        stored.status(), stored.eTag(), stored.body());
+                return new Outcome(response, stored);
+            });
+        } catch (RuntimeException e) {
+            // Nothing was stored: the duplicates waiting for us fail the same way, and the next retry runs again
+            entries.remove(id, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        mine.complete(outcome.stored());
+        if (outcome.response() == null) {
+            replayedFromDatabase.increment();
+            return replay(outcome.stored(), requestHash);
+        }
+        executed.increment();
+        return outcome.response();
+    }
+
+    private static StoredResponse await(CompletableFuture<StoredResponse> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    IDEMPOTENCY_KEY_HEADER + " was already used for a different request");
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(stored.status())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true");
+        if (stored.eTag() != null) {
+            response.header(HttpHeaders.ETAG, stored.eTag());
+        }
+        // The JSON exactly as it was sent the first time
+        return response.body(stored.body());
+    }
+
+    private String hash(String endpoint, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (purger != null) {
+            return;
+        }
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-key-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = purgeInterval.toMillis();
+        purger.scheduleWithFixedDelay(this::purge, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (purger != null) {
+            purger.shutdownNow();
+            purger = null;
+        }
+    }
+
+    // Expired keys are ignored anyway (claim takes them over); this only keeps the table small
+    private void purge() {
+        try {
+            int deleted = idempotencyRecordRepository.deleteExpired(Instant.now().minus(ttl));
+            if (deleted > 0) {
+                log.debug("Deleted {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not delete expired idempotency keys: {}", e.getMessage());
+        }
+    }
+}
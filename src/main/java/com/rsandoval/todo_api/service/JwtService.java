@@ -1,10 +1,17 @@
 package com.rsandoval.todo_api.service;
 
+import com.rsandoval.todo_api.config.AuthenticatedUser;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
@@ -15,24 +22,71 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
-    private String jwtSecret;
+    private static final int TOKEN_CACHE_SIZE = 10_000;
+    // Custom claims so a verified token is enough to identify the user without a DB lookup
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
 
+    private String jwtSecret;
+    // Built once: decoding the secret and creating the parser on every call is wasted work
+    private final Key signInKey;
+    private final JwtParser jwtParser;
+    private final VerifiedTokenCache tokenCache = new VerifiedTokenCache(TOKEN_CACHE_SIZE);
+    // How long checking a bearer token takes, split by whether it came from the cache
+    private final Timer cachedVerifications;
+    private final Timer fullVerifications;
+    private final Timer failedVerifications;
+
+    // Outside of Spring (tests, benchmarks) the timings go to Micrometer's global registry, which is a no-op by default
     public JwtService() {
+        this(Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public JwtService(MeterRegistry meterRegistry) {
         try {
             this.jwtSecret = loadSecretKey();
         } catch (Exception e) {
             // If the file is missing (in tests), use a dummy key
             this.jwtSecret = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
         }
+        this.signInKey = getSignInKey();
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.cachedVerifications = verificationTimer(meterRegistry, "cached");
+        this.fullVerifications = verificationTimer(meterRegistry, "verified");
+        this.failedVerifications = verificationTimer(meterRegistry, "invalid");
+        meterRegistry.gauge("jwt.token.cache.size", tokenCache, VerifiedTokenCache::size);
+        FunctionCounter.builder("jwt.token.cache.gets", tokenCache, VerifiedTokenCache::getHitCount)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("jwt.token.cache.gets", tokenCache, VerifiedTokenCache::getMissCount)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("jwt.token.cache.evictions", tokenCache, VerifiedTokenCache::getEvictionCount)
+                .register(meterRegistry);
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("jwt.verification")
+                .description("Time to verify a bearer token")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     // Main method we will call when a user logs in
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof AuthenticatedUser user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLE, user.getRole());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -41,7 +95,7 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis())) // "Created at" timestamp
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // Expires in 24 hours
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256) // "Stamp" it with our secret key
+                .signWith(signInKey, SignatureAlgorithm.HS256) // "Stamp" it with our secret key
                 .compact();
     }
 
@@ -65,6 +119,28 @@ public class JwtService {
     }
 
     // READ TOKEN
+    // Verifies the signature and parses the token exactly once, returning all of its claims.
+    // Tokens we have already verified are served from the cache without touching the HMAC.
+    // Throws a JwtException if the token is malformed, tampered with or expired.
+    public Claims verifyToken(String token) {
+        long start = System.nanoTime();
+        Claims cached = tokenCache.get(token);
+        if (cached != null) {
+            cachedVerifications.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
+        }
+        Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (RuntimeException e) {
+            failedVerifications.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        tokenCache.put(token, claims);
+        fullVerifications.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
+    }
+
     // Extract the username (Subject) from the token
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -72,32 +148,44 @@ public class JwtService {
 
     // Extract any specific data (claim)
     private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verifyToken(token);
         return claimsResolver.apply(claims);
     }
 
     // Reads the encrypted token using the Secret Key
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    // VALIDATE TOKEN
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    // Builds the request principal straight from signed claims.
+    // Returns null for tokens issued without the id claims; the caller has to look the user up then.
+    public AuthenticatedUser extractAuthenticatedUser(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        return new AuthenticatedUser(userId, claims.getSubject(), null, role);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // VALIDATE TOKEN
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
+    // Same check against claims that were already verified, so the caller doesn't parse twice
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername()) && !isTokenExpired(claims));
+    }
 
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
+    }
 }
@@ -0,0 +1,174 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.TaskBatchOperation;
+import com.rsandoval.todo_api.dto.TaskBatchResult;
+import com.rsandoval.todo_api.dto.TaskEvent;
+import com.rsandoval.todo_api.model.Task;
+import com.rsandoval.todo_api.model.User;
+import com.rsandoval.todo_api.repository.TaskRepository;
+import com.rsandoval.todo_api.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Applies a list of mixed create/update/delete operations for one user in a single transaction.
+// All referenced tasks are loaded with ONE query (under the user's lock), and the resulting INSERT/UPDATE statements
+// are sent to Postgres as JDBC batches when the transaction flushes (see hibernate.jdbc.batch_size).
+// A failing operation (not found / not yours) doesn't stop the others; it just gets an error result.
+@Service
+public class TaskBatchService {
+
+    public static final int MAX_OPERATIONS = 1000;
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final TaskVersionService taskVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskCacheInvalidator taskCacheInvalidator;
+    private final TaskStatsService taskStatsService;
+
+    public TaskBatchService(TaskRepository taskRepository,
+                            UserRepository userRepository,
+                            TaskVersionService taskVersionService,
+                            ApplicationEventPublisher eventPublisher,
+                            TaskCacheInvalidator taskCacheInvalidator,
+                            TaskStatsService taskStatsService) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.taskVersionService = taskVersionService;
+        this.eventPublisher = eventPublisher;
+        this.taskCacheInvalidator = taskCacheInvalidator;
+        this.taskStatsService = taskStatsService;
+    }
+
+    @Transactional
+    public List<TaskBatchResult> apply(Long userId, List<TaskBatchOperation> operations) {
+        // 1. The user's lock before anything else: no other write of theirs can commit between loading the tasks
+        // and flushing our changes to them. The whole batch is one change of the user's task list, stamped with
+        // the next version; the version itself only moves (step 3) if at least one operation succeeds
+        long changeVersion = taskVersionService.lock(userId) + 1;
+
+        // Load every task the batch refers to in one round-trip
+        List<Long> referencedIds = operations.stream()
+                .filter(op -> op.op() != TaskBatchOperation.Type.CREATE)
+                .map(TaskBatchOperation::id)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Long, Task> existing = new HashMap<>();
+        for (Task task : taskRepository.findAllByIdIn(referencedIds)) {
+            existing.put(task.getId(), task);
+        }
+
+        User owner = userRepository.getReferenceById(userId);
+        List<TaskBatchResult> results = new ArrayList<>(operations.size());
+        // Net effect of the whole batch on the user's task counts, written once at the end
+        long totalDelta = 0, completedDelta = 0, completions = 0;
+
+        // 2. Work out the outcome of each operation. Nothing is written yet: persist() only takes an id
+        // from the pooled sequence and updates are tracked by dirty checking until the flush below
+        for (TaskBatchOperation operation : operations) {
+            if (operation.op() == null) {
+                results.add(TaskBatchResult.failure(null, operation.id(), HttpStatus.BAD_REQUEST, "Missing op"));
+                continue;
+            }
+            switch (operation.op()) {
+                case CREATE -> {
+                    Task task = new Task();
+                    task.setDescription(operation.description());
+                    task.setCompleted(Boolean.TRUE.equals(operation.completed()));
+                    task.setUser(owner);
+                    task.setChangeVersion(changeVersion);
+                    taskRepository.save(task);
+                    totalDelta++;
+                    if (task.isCompleted()) {
+                        completedDelta++;
+                        completions++;
+                    }
+                    results.add(TaskBatchResult.success(operation.op(), HttpStatus.CREATED, task));
+                }
+                case UPDATE -> {
+                    TaskBatchResult error = checkAccess(operation, existing, userId);
+                    if (error != null) {
+                        results.add(error);
+                        continue;
+                    }
+                    Task task = existing.get(operation.id());
+                    boolean completed = Boolean.TRUE.equals(operation.completed());
+                    if (completed != task.isCompleted()) {
+                        completedDelta += completed ? 1 : -1;
+                        if (completed) completions++;
+                    }
+                    task.setDescription(operation.description());
+                    task.setCompleted(completed);
+                    task.setChangeVersion(changeVersion);
+                    results.add(TaskBatchResult.success(operation.op(), HttpStatus.OK, task));
+                }
+                case DELETE -> {
+                    TaskBatchResult error = checkAccess(operation, existing, userId);
+                    if (error != null) {
+                        results.add(error);
+                        continue;
+                    }
+                    // Soft delete, like the single-task endpoint. Later operations in the same batch must see it as gone
+                    Task task = existing.remove(operation.id());
+                    // Otherwise Hibernate would put the tombstone in the second-level cache after the commit
+                    taskCacheInvalidator.invalidate(task.getId());
+                    totalDelta--;
+                    if (task.isCompleted()) completedDelta--;
+                    task.setDeleted(true);
+                    task.setDescription(null);
+                    task.setChangeVersion(changeVersion);
+                    results.add(TaskBatchResult.deleted(operation.id()));
+                }
+            }
+        }
+
+        // 3. Send everything to the database: the statements go out as JDBC batches.
+        // A batch where every operation failed changed nothing, and leaves the version (and every ETag) alone
+        if (results.stream().anyMatch(result -> result.error() == null)) {
+            taskVersionService.nextVersion(userId);
+            taskStatsService.record(userId, totalDelta, completedDelta, completions);
+            taskRepository.flush();
+        }
+
+        // 4. One event for the whole batch; subscribers get it after the commit
+        List<TaskEvent> events = new ArrayList<>();
+        for (TaskBatchResult result : results) {
+            if (result.error() != null) continue;
+            switch (result.op()) {
+                case CREATE -> events.add(TaskEvent.created(result.task()));
+                case UPDATE -> events.add(TaskEvent.updated(result.task()));
+                case DELETE -> events.add(TaskEvent.deleted(result.id()));
+            }
+        }
+        if (!events.isEmpty()) {
+            eventPublisher.publishEvent(new TaskChangedEvent(userId, events));
+        }
+        return results;
+    }
+
+    private TaskBatchResult checkAccess(TaskBatchOperation operation, Map<Long, Task> existing, Long userId) {
+        if (operation.id() == null) {
+            return TaskBatchResult.failure(operation.op(), null, HttpStatus.BAD_REQUEST, "Missing task id");
+        }
+        Task task = existing.get(operation.id());
+        if (task == null) {
+            return TaskBatchResult.failure(operation.op(), operation.id(), HttpStatus.NOT_FOUND,
+                    "Task not found with ID: " + operation.id());
+        }
+        // Reading the id of the lazy user proxy doesn't hit the database
+        if (!task.getUser().getId().equals(userId)) {
+            return TaskBatchResult.failure(operation.op(), operation.id(), HttpStatus.FORBIDDEN,
+                    "You do not have permission to modify this task");
+        }
+        return null;
+    }
+}
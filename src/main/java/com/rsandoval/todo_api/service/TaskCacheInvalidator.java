@@ -0,0 +1,55 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.model.Task;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Keeps Hibernate's second-level cache honest around our native UPDATE ... RETURNING statements.
+// Hibernate can't tell those are writes, so it would keep serving the old task after them.
+// This does by hand what Hibernate does for its own updates: the cached task is locked before the write, so nobody
+// can put a stale copy back while the transaction runs, and released when the transaction ends; after that, the
+// next read loads the committed row. Only this one task is touched: listing pages are cached by list version
+// (TaskPageCache), so no write has to empty anything table-wide.
+// Soft deletes use it too, even in the batch where Hibernate does the UPDATE: the lock keeps the tombstone
+// from being cached at all, so a lookup by id can't find it there.
+@Component
+public class TaskCacheInvalidator {
+
+    private final EntityManager entityManager;
+
+    public TaskCacheInvalidator(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Call inside the write's transaction, BEFORE the row is written
+    public void invalidate(Long taskId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Task cache invalidation needs an active transaction");
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        EntityPersister persister = factory.getMappingMetamodel().getEntityDescriptor(Task.class);
+        EntityDataAccess taskCache = persister.getCacheAccessStrategy();
+        // null when the second-level cache is switched off: nothing to keep honest then
+        if (taskCache == null) {
+            return;
+        }
+        Object key = taskCache.generateCacheKey(taskId, persister, factory, session.getTenantIdentifier());
+        SoftLock lock = taskCache.lockItem(session, key, null);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Committed or rolled back, the cached copy can't be trusted anymore: drop it either way
+                taskCache.unlockItem(session, key, lock);
+            }
+        });
+    }
+}
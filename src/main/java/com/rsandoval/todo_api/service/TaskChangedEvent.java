@@ -0,0 +1,10 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.TaskEvent;
+
+import java.util.List;
+
+// Published (inside the write transaction) by TaskService / TaskBatchService;
+// TaskEventBroadcaster only acts on it once that transaction has committed.
+public record TaskChangedEvent(Long userId, List<TaskEvent> events) {
+}
@@ -0,0 +1,168 @@
+package com.rsandoval.todo_api.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The append-only file behind TaskCompletionQueue. One line per record, so it can be read with any editor:
+//   T <seq> <userId> <taskId> <0|1>   a toggle was accepted (and acknowledged once the file is forced)
+//   A <seq>                           that toggle is in the database now (or was dropped)
+// A line cut short by a crash has no newline yet and is ignored on replay: its toggle was never acknowledged.
+// Not thread-safe, TaskCompletionQueue does the locking.
+class TaskCompletionLog implements Closeable {
+
+    record Entry(long seq, long userId, long taskId, boolean completed) {}
+
+    // What a replay found: the toggles still to be written (the latest per task), and the highest seq used
+    record Replay(List<Entry> pending, long lastSeq) {}
+
+    private final Path file;
+    private FileChannel channel;
+
+    TaskCompletionLog(Path file) {
+        this.file = file;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            this.channel = open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open the task completion log " + file, e);
+        }
+    }
+
+    static Replay replay(Path file) {
+        if (!Files.exists(file)) {
+            return new Replay(List.of(), 0);
+        }
+        String content;
+        try {
+            content = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read the task completion log " + file, e);
+        }
+        Map<Long, Entry> latestByTask = new LinkedHashMap<>();
+        Set<Long> applied = new HashSet<>();
+        long lastSeq = 0;
+        // Everything after the last newline is a torn write
+        int end = content.lastIndexOf('\n');
+        for (String line : content.substring(0, end + 1).split("\n")) {
+            String[] fields = line.split(" ");
+            if (fields[0].equals("T") && fields.length == 5) {
+                Entry entry = new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]), fields[4].equals("1"));
+                latestByTask.merge(entry.taskId(), entry, (old, now) -> now.seq() > old.seq() ? now : old);
+                lastSeq = Math.max(lastSeq, entry.seq());
+            } else if (fields[0].equals("A") && fields.length == 2) {
+                applied.add(Long.parseLong(fields[1]));
+            } else if (!line.isEmpty()) {
+                throw new IllegalStateException("Unreadable line in the task completion log " + file + ": " + line);
+            }
+        }
+        List<Entry> pending = new ArrayList<>();
+        for (Entry entry : latestByTask.values()) {
+            if (!applied.contains(entry.seq())) {
+                pending.add(entry);
+            }
+        }
+        return new Replay(pending, lastSeq);
+    }
+
+    void appendToggle(Entry entry) {
+        write(toggleLine(entry));
+    }
+
+    void appendApplied(Collection<Entry> entries) {
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            lines.append("A ").append(entry.seq()).append('\n');
+        }
+        write(lines.toString());
+    }
+
+    // Makes everything written so far survive a crash
+    void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't sync the task completion log " + file, e);
+        }
+    }
+
+    long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Replaces the whole file with just the given (still pending) toggles. Written next to it and then renamed,
+    // so a crash halfway leaves either the old or the new file, never a mix
+    void rewrite(Collection<Entry> pending) {
+        Path next = file.resolveSibling(file.getFileName() + ".next");
+        try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder lines = new StringBuilder();
+            for (Entry entry : pending) {
+                lines.append(toggleLine(entry));
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+            channel.close();
+            try {
+                Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                channel = open(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't rewrite the task completion log " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String lines) {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write to the task completion log " + file, e);
+        }
+    }
+
+    private static String toggleLine(Entry entry) {
+        return "T " + entry.seq() + " " + entry.userId() + " " + entry.taskId() + " " + (entry.completed() ? 1 : 0) + "\n";
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
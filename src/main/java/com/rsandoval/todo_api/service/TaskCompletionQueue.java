@@ -0,0 +1,260 @@
+package com.rsandoval.todo_api.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind for checkbox clicks (opt-in, todo.write-behind.enabled). A toggle is appended to a local log file
+// (TaskCompletionLog) and acknowledged as soon as that file is forced to disk; the database write happens later.
+// Repeated toggles of the same task collapse into the latest one, and a background thread writes what is pending
+// every flush-interval, one transaction per user (TaskService.applyCompletions).
+// Anything else a user does with their tasks first calls flush(userId), so reads always see the user's own
+// pending toggles and other writes land after them. After a restart the log is replayed: an acknowledged
+// toggle is never lost. The log is local to this node, so this only fits deployments with a single instance
+// (or sticky sessions): another node neither sees nor flushes it.
+@Service
+public class TaskCompletionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskCompletionQueue.class);
+
+    // Past this size the log is rewritten with just the pending toggles
+    private static final long COMPACT_THRESHOLD_BYTES = 1024 * 1024;
+
+    private final TaskService taskService;
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int batchSize;
+
+    // userId -> taskId -> latest pending toggle
+    private final Map<Long, Map<Long, TaskCompletionLog.Entry>> pendingByUser = new ConcurrentHashMap<>();
+    // One user is flushed by one thread at a time: the background flush and a request's flush(userId) never
+    // write the same toggle twice, and a user's toggles reach the database in order
+    private final ReentrantLock[] userLocks = new ReentrantLock[64];
+    // Guards the log file and the seq counter; toggles are added to pendingByUser under it too, so a rewrite
+    // of the log always matches what is pending
+    private final ReentrantLock logLock = new ReentrantLock();
+    // Group commit: whoever holds it forces the file for every toggle written so far, not just its own
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private TaskCompletionLog completionLog;
+    private long lastSeq;
+    private long writes;
+    private long syncedWrites;
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+
+    public TaskCompletionQueue(TaskService taskService,
+                               @Value("${todo.write-behind.enabled:false}") boolean enabled,
+                               @Value("${todo.write-behind.log-file:data/task-completions.log}") Path logFile,
+                               @Value("${todo.write-behind.flush-interval:200ms}") Duration flushInterval,
+                               @Value("${todo.write-behind.batch-size:500}") int batchSize,
+                               MeterRegistry meterRegistry) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+        this.taskService = taskService;
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantLock();
+        }
+        if (enabled) {
+            // Whatever was acknowledged before the last shutdown (or crash) and not written yet
+            TaskCompletionLog.Replay replay = TaskCompletionLog.replay(logFile);
+            for (TaskCompletionLog.Entry entry : replay.pending()) {
+                pendingByUser.computeIfAbsent(entry.userId(), id -> new ConcurrentHashMap<>()).put(entry.taskId(), entry);
+            }
+            lastSeq = replay.lastSeq();
+            completionLog = new TaskCompletionLog(logFile);
+            completionLog.rewrite(replay.pending());
+            if (!replay.pending().isEmpty()) {
+                log.info("Replayed {} pending task completion toggles from {}", replay.pending().size(), logFile);
+            }
+        }
+
+        FunctionCounter.builder("tasks.write.behind.accepted", accepted, LongAdder::sum)
+                .description("Completion toggles accepted into the write-behind log").register(meterRegistry);
+        FunctionCounter.builder("tasks.write.behind.flushed", flushed, LongAdder::sum)
+                .description("Coalesced completion toggles written to the database").register(meterRegistry);
+        Gauge.builder("tasks.write.behind.pending", this, TaskCompletionQueue::pendingCount)
+                .description("Completion toggles waiting to be written to the database").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Durable when this returns: the caller may acknowledge the toggle
+    public void submit(Long userId, Long taskId, boolean completed) {
+        if (!enabled) {
+            throw new IllegalStateException("The write-behind queue is disabled (todo.write-behind.enabled)");
+        }
+        long written;
+        logLock.lock();
+        try {
+            TaskCompletionLog.Entry entry = new TaskCompletionLog.Entry(++lastSeq, userId, taskId, completed);
+            completionLog.appendToggle(entry);
+            written = ++writes;
+            pendingByUser.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(taskId, entry);
+        } finally {
+            logLock.unlock();
+        }
+        sync(written);
+        accepted.increment();
+    }
+
+    // Writes the user's pending toggles to the database, if there are any. Cheap when there aren't
+    public void flush(Long userId) {
+        if (!pendingByUser.containsKey(userId)) {
+            return;
+        }
+        ReentrantLock userLock = userLocks[Math.floorMod(userId.hashCode(), userLocks.length)];
+        userLock.lock();
+        try {
+            // Looked up again now that we hold the lock: someone else may have written them meanwhile
+            Map<Long, TaskCompletionLog.Entry> pending = pendingByUser.get(userId);
+            if (pending == null) {
+                return;
+            }
+            List<TaskCompletionLog.Entry> entries = new ArrayList<>(pending.values());
+            for (int from = 0; from < entries.size(); from += batchSize) {
+                List<TaskCompletionLog.Entry> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+                Map<Long, Boolean> completedById = new LinkedHashMap<>();
+                for (TaskCompletionLog.Entry entry : batch) {
+                    completedById.put(entry.taskId(), entry.completed());
+                }
+                taskService.applyCompletions(userId, completedById);
+                markApplied(userId, batch);
+                flushed.add(batch.size());
+            }
+        } finally {
+            userLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return pendingByUser.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-completion-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Last chance to write what is pending while the database is still there. Whatever fails stays in the log
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        flushAll();
+        completionLog.close();
+    }
+
+    private void flushAll() {
+        for (Long userId : pendingByUser.keySet()) {
+            try {
+                flush(userId);
+            } catch (RuntimeException e) {
+                // Stays pending (and in the log): retried on the next round
+                log.warn("Could not write the pending task completions of user {}: {}", userId, e.getMessage());
+            }
+        }
+        compact();
+    }
+
+    // The toggles are in the database now: forget them, unless the user toggled the task again meanwhile
+    private void markApplied(Long userId, List<TaskCompletionLog.Entry> batch) {
+        long written;
+        logLock.lock();
+        try {
+            completionLog.appendApplied(batch);
+            written = ++writes;
+            pendingByUser.computeIfPresent(userId, (id, pending) -> {
+                batch.forEach(entry -> pending.remove(entry.taskId(), entry));
+                return pending.isEmpty() ? null : pending;
+            });
+        } finally {
+            logLock.unlock();
+        }
+        // Before anything else of the user's is written, or a replay could put this toggle back over it
+        sync(written);
+    }
+
+    private void sync(long written) {
+        syncLock.lock();
+        try {
+            if (syncedWrites >= written) {
+                return; // Someone else's force already covered it
+            }
+            long upTo;
+            logLock.lock();
+            try {
+                upTo = writes;
+            } finally {
+                logLock.unlock();
+            }
+            completionLog.force();
+            syncedWrites = upTo;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Keeps the log from growing forever: once it is big (or nothing is pending), start over with only the pending toggles
+    private void compact() {
+        syncLock.lock();
+        logLock.lock();
+        try {
+            boolean nothingPending = pendingByUser.isEmpty();
+            if ((nothingPending && completionLog.size() > 0) || completionLog.size() > COMPACT_THRESHOLD_BYTES) {
+                List<TaskCompletionLog.Entry> pending = new ArrayList<>();
+                pendingByUser.values().forEach(entries -> pending.addAll(entries.values()));
+                completionLog.rewrite(pending);
+                syncedWrites = writes;
+            }
+        } finally {
+            logLock.unlock();
+            syncLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.TaskEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps the open Server-Sent-Events connections of each user and pushes task changes to them.
+// The connections are async servlet responses: an idle subscriber doesn't occupy any thread.
+@Service
+public class TaskEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskEventBroadcaster.class);
+
+    // Browsers reconnect on their own once this runs out
+    static final long EMITTER_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    // A few tabs/devices per user is normal; hundreds would be a leak or an abuse
+    static final int MAX_CONNECTIONS_PER_USER = 10;
+
+    // Copy-on-write, oldest connection first. Only ever changed inside compute(), so adding a connection,
+    // enforcing the cap and removing a closed one can't undo each other
+    private final Map<Long, List<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final TaskExecutor taskExecutor;
+
+    public TaskEventBroadcaster(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Connection connection = new Connection(userId, emitter);
+        Runnable remove = () -> unsubscribe(connection);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        try {
+            // Gets the response headers out right away, so the client knows the stream is live.
+            // Sent before the connection is shared: from then on a newer subscriber may complete it at any time
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+
+        List<Connection> replaced = new ArrayList<>(1);
+        connectionsByUser.compute(userId, (id, connections) -> {
+            List<Connection> updated = connections == null ? new ArrayList<>() : new ArrayList<>(connections);
+            if (updated.size() >= MAX_CONNECTIONS_PER_USER) {
+                // Make room by closing the oldest connection rather than refusing the new one
+                replaced.add(updated.remove(0));
+            }
+            updated.add(connection);
+            return List.copyOf(updated);
+        });
+        // Outside compute(): completing runs the emitter's callbacks, which update the map themselves
+        replaced.forEach(old -> old.emitter.complete());
+        return emitter;
+    }
+
+    // Runs only after the write committed, so clients never hear about a change that was rolled back.
+    // The actual network writes happen on the task executor to keep them off the request thread,
+    // one connection's events in the order they came in (see Connection)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTaskChanged(TaskChangedEvent event) {
+        List<Connection> connections = connectionsByUser.get(event.userId());
+        if (connections == null) {
+            return;
+        }
+        for (Connection connection : connections) {
+            connection.enqueue(event);
+        }
+    }
+
+    public int connectionCount() {
+        return connectionsByUser.values().stream().mapToInt(List::size).sum();
+    }
+
+    // Close every stream as shutdown begins: graceful shutdown would otherwise wait for them to time out.
+    // Clients simply reconnect to another (or the restarted) instance
+    @EventListener(ContextClosedEvent.class)
+    public void closeAll() {
+        connectionsByUser.values().forEach(connections -> connections.forEach(connection -> connection.emitter.complete()));
+        connectionsByUser.clear();
+    }
+
+    private void unsubscribe(Connection connection) {
+        connectionsByUser.computeIfPresent(connection.userId, (id, connections) -> {
+            List<Connection> updated = new ArrayList<>(connections);
+            updated.remove(connection);
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+    }
+
+    // One SSE stream and the events still to be written to it. At most one executor task drains the queue at a
+    // time, so two quick updates of the same task can't overtake each other on their way to the client
+    private final class Connection {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<TaskChangedEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(TaskChangedEvent event) {
+            pending.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                taskExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            TaskChangedEvent event;
+            while ((event = pending.poll()) != null) {
+                if (!send(event)) {
+                    pending.clear();
+                    break;
+                }
+            }
+            draining.set(false);
+            // An event that came in after the last poll but before the flag was cleared
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private boolean send(TaskChangedEvent event) {
+            try {
+                for (TaskEvent taskEvent : event.events()) {
+                    emitter.send(SseEmitter.event()
+                            .name(taskEvent.type().eventName())
+                            .data(taskEvent, MediaType.APPLICATION_JSON));
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // Client went away (or the emitter already completed): forget about it
+                log.debug("Dropping SSE connection of user {}: {}", userId, e.getMessage());
+                emitter.completeWithError(e);
+                unsubscribe(this);
+                return false;
+            }
+        }
+    }
+}
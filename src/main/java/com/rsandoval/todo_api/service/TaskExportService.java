@@ -0,0 +1,46 @@
+package com.rsandoval.todo_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rsandoval.todo_api.dto.TaskView;
+import com.rsandoval.todo_api.repository.TaskRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes all of a user's tasks as newline-delimited JSON (one task object per line).
+// Rows are pulled from a database cursor and written out one by one, so memory use stays
+// flat no matter how many tasks the user has.
+@Service
+public class TaskExportService {
+
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    private final TaskRepository taskRepository;
+    private final ObjectMapper objectMapper;
+
+    public TaskExportService(TaskRepository taskRepository, ObjectMapper objectMapper) {
+        this.taskRepository = taskRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // The transaction keeps the JDBC cursor open while we stream (Postgres only honors the fetch size inside one)
+    @Transactional(readOnly = true)
+    public void exportTasks(Long userId, OutputStream out) throws IOException {
+        try (Stream<TaskView> tasks = taskRepository.streamByUserId(userId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The servlet container owns the response stream; don't close it from here
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            Iterator<TaskView> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
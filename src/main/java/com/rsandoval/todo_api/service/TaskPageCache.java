@@ -0,0 +1,55 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.TaskView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+// Listing pages, kept in memory on this node. The key includes the user's list version (task_list_version),
+// which every write bumps in the database whichever node it runs on: a page is only ever served for the very
+// version its ETag names, and a write simply makes the user's older pages unreachable. Nothing to invalidate,
+// and one user's writes leave everybody else's pages alone. Unreachable pages expire or make room for new ones.
+@Service
+public class TaskPageCache {
+
+    // completed is null for the unfiltered listing; the rest is the cursor and the number of rows fetched
+    public record Key(Long userId, long listVersion, Boolean completed, boolean afterCompleted, long afterId, int limit) {
+    }
+
+    private final BoundedExpiringCache<Key, List<TaskView>> pages;
+    private final long ttlMillis;
+
+    public TaskPageCache(@Value("${todo.task-page-cache.max-size:20000}") int maxEntries,
+                         @Value("${todo.task-page-cache.ttl:5m}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.pages = new BoundedExpiringCache<>(maxEntries);
+        this.ttlMillis = ttl.toMillis();
+
+        FunctionCounter.builder("task.page.cache.gets", pages, BoundedExpiringCache::getHitCount).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("task.page.cache.gets", pages, BoundedExpiringCache::getMissCount).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("task.page.cache.evictions", pages, BoundedExpiringCache::getEvictionCount).register(meterRegistry);
+        Gauge.builder("task.page.cache.size", pages, BoundedExpiringCache::size).register(meterRegistry);
+    }
+
+    // The cached rows, or null if this page isn't cached for this version
+    public List<TaskView> get(Key key) {
+        return pages.get(key);
+    }
+
+    public void put(Key key, List<TaskView> rows) {
+        // Shared by every request that hits it: nobody gets to change it
+        pages.put(key, List.copyOf(rows), System.currentTimeMillis() + ttlMillis);
+    }
+
+    public void clear() {
+        pages.clear();
+    }
+
+    public long getHitCount() { return pages.getHitCount(); }
+    public long getMissCount() { return pages.getMissCount(); }
+}
@@ -0,0 +1,51 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.SearchCursor;
+import com.rsandoval.todo_api.dto.TaskSearchHit;
+import com.rsandoval.todo_api.repository.TaskRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Full-text search over a user's task descriptions, backed by Postgres' text search and a GIN index.
+// Every word of the search text must appear in the description, each one as a prefix ("mov" finds "movie").
+@Service
+public class TaskSearchService {
+
+    // More words than this only make the query slower, not the results better
+    static final int MAX_WORDS = 10;
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private final TaskRepository taskRepository;
+
+    public TaskSearchService(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    // limit is the maximum number of hits to return
+    public List<TaskSearchHit> search(Long userId, String text, SearchCursor after, int limit) {
+        return taskRepository.searchByUserId(userId, toTsQuery(text), after.rank(), after.id(), limit);
+    }
+
+    // Turns free text into a to_tsquery expression: "New mov!" -> "new:* & mov:*".
+    // Only letters and digits survive, so nothing the user types can be read as tsquery syntax.
+    // Lowercased with Locale.ROOT: under a Turkish default locale "I" would become a dotless "ı" and match nothing
+    public static String toTsQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        Matcher words = WORD.matcher(text == null ? "" : text);
+        while (words.find() && terms.size() < MAX_WORDS) {
+            terms.add(words.group().toLowerCase(Locale.ROOT) + ":*");
+        }
+        if (terms.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The search text must contain at least one word");
+        }
+        return String.join(" & ", terms);
+    }
+}
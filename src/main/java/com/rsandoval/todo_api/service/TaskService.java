@@ -0,0 +1,128 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.TaskEvent;
+import com.rsandoval.todo_api.exception.TaskNotFoundException;
+import com.rsandoval.todo_api.model.Task;
+import com.rsandoval.todo_api.repository.TaskRepository;
+import com.rsandoval.todo_api.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Single-task writes. Each one runs in its own transaction together with the bump of the user's
+// task list version, and stamps the row with that version so delta sync can find it.
+// Every successful write also publishes a TaskChangedEvent, which subscribers receive once it commits,
+// and adjusts the user's task counts (TaskStatsService) in the same transaction.
+@Service
+public class TaskService {
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final TaskVersionService taskVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskCacheInvalidator taskCacheInvalidator;
+    private final TaskStatsService taskStatsService;
+
+    public TaskService(TaskRepository taskRepository,
+                       UserRepository userRepository,
+                       TaskVersionService taskVersionService,
+                       ApplicationEventPublisher eventPublisher,
+                       TaskCacheInvalidator taskCacheInvalidator,
+                       TaskStatsService taskStatsService) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.taskVersionService = taskVersionService;
+        this.eventPublisher = eventPublisher;
+        this.taskCacheInvalidator = taskCacheInvalidator;
+        this.taskStatsService = taskStatsService;
+    }
+
+    @Transactional
+    public Task create(Long userId, Task task) {
+        // Never let the client pick the id: save() would happily overwrite an existing task with it
+        task.setId(null);
+        // A reference is enough to set the foreign key; it doesn't query the users table
+        task.setUser(userRepository.getReferenceById(userId));
+        task.setChangeVersion(taskVersionService.nextVersion(userId));
+        Task saved = taskRepository.save(task);
+        taskStatsService.recordCreated(userId, saved.isCompleted());
+        publish(userId, TaskEvent.created(saved));
+        return saved;
+    }
+
+    // expectedVersion is the task version from the client's If-Match header, or null for an unconditional update
+    @Transactional
+    public Task update(Long userId, Long id, Task data, Long expectedVersion) {
+        long changeVersion = taskVersionService.nextVersion(userId);
+        // The native UPDATE below goes around Hibernate, so its caches have to be told
+        taskCacheInvalidator.invalidate(id);
+        // Has to see the status from before the update; if the update then fails, it's rolled back with it
+        taskStatsService.recordStatusChange(userId, id, data.isCompleted());
+        // Update the row only if it belongs to the current user, and get the result back in the same statement
+        Optional<Task> updated = (expectedVersion == null)
+                ? taskRepository.updateByIdAndUserId(id, userId, data.getDescription(), data.isCompleted(), changeVersion)
+                : taskRepository.updateByIdAndUserIdAndVersion(
+                        id, userId, expectedVersion, data.getDescription(), data.isCompleted(), changeVersion);
+
+        // The task is there and it's ours, so it must have been the version that didn't match
+        if (updated.isEmpty() && expectedVersion != null
+                && taskRepository.findVersionByIdAndUserId(id, userId).isPresent()) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Task was modified by another request");
+        }
+        Task task = updated.orElseThrow(() -> notFoundOrForbidden(id,
+                "Task not found with ID: " + id, "You do not have permission to update this task"));
+        publish(userId, TaskEvent.updated(task));
+        return task;
+    }
+
+    // Writes completion toggles that TaskCompletionQueue accepted earlier, as ONE change of the user's task list.
+    // Tasks that were deleted in the meantime (or never were the user's) are skipped, and so are
+    // tasks that already have that status. Returns the tasks that actually changed
+    @Transactional
+    public List<Task> applyCompletions(Long userId, Map<Long, Boolean> completedById) {
+        // The version only moves if a task really changes
+        long changeVersion = taskVersionService.lock(userId) + 1;
+        List<Task> changed = new ArrayList<>();
+        completedById.forEach((id, completed) -> {
+            taskCacheInvalidator.invalidate(id);
+            taskStatsService.recordStatusChange(userId, id, completed);
+            taskRepository.updateCompletedByIdAndUserId(id, userId, completed, changeVersion).ifPresent(changed::add);
+        });
+        if (!changed.isEmpty()) {
+            taskVersionService.nextVersion(userId);
+            eventPublisher.publishEvent(new TaskChangedEvent(userId, changed.stream().map(TaskEvent::updated).toList()));
+        }
+        return changed;
+    }
+
+    @Transactional
+    public void delete(Long userId, Long id) {
+        long changeVersion = taskVersionService.nextVersion(userId);
+        taskCacheInvalidator.invalidate(id);
+        // One statement does both the security check and the (soft) delete
+        Boolean wasCompleted = taskRepository.markDeletedByIdAndUserId(id, userId, changeVersion)
+                .orElseThrow(() -> notFoundOrForbidden(id, "Task not found", "You do not have permission to delete this task"));
+        taskStatsService.recordDeleted(userId, wasCompleted);
+        publish(userId, TaskEvent.deleted(id));
+    }
+
+    private void publish(Long userId, TaskEvent event) {
+        eventPublisher.publishEvent(new TaskChangedEvent(userId, List.of(event)));
+    }
+
+    // A conditional write touched nothing: either there is no such task, or it belongs to someone else.
+    // Only this (rare) failure path pays for the extra lookup. Throwing also rolls back the version bump.
+    private RuntimeException notFoundOrForbidden(Long id, String notFoundMessage, String forbiddenMessage) {
+        if (!taskRepository.existsById(id)) {
+            return new TaskNotFoundException(notFoundMessage);
+        }
+        return new ResponseStatusException(HttpStatus.FORBIDDEN, forbiddenMessage);
+    }
+}
@@ -0,0 +1,82 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.dto.TaskStatistics;
+import com.rsandoval.todo_api.model.TaskCompletionDay;
+import com.rsandoval.todo_api.model.TaskStats;
+import com.rsandoval.todo_api.repository.TaskCompletionDayRepository;
+import com.rsandoval.todo_api.repository.TaskStatsRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-user task counts, maintained incrementally by the task writes instead of counted on every read.
+// The record* methods must be called INSIDE the transaction of the write they describe: the counts then
+// commit (or roll back) together with the tasks, and the task list version lock the write already holds
+// keeps a user's updates from interleaving.
+@Service
+public class TaskStatsService {
+
+    public static final int MAX_DAYS = 366;
+
+    private final TaskStatsRepository taskStatsRepository;
+    private final TaskCompletionDayRepository taskCompletionDayRepository;
+
+    public TaskStatsService(TaskStatsRepository taskStatsRepository,
+                            TaskCompletionDayRepository taskCompletionDayRepository) {
+        this.taskStatsRepository = taskStatsRepository;
+        this.taskCompletionDayRepository = taskCompletionDayRepository;
+    }
+
+    public void recordCreated(Long userId, boolean completed) {
+        record(userId, 1, completed ? 1 : 0, completed ? 1 : 0);
+    }
+
+    public void recordDeleted(Long userId, boolean wasCompleted) {
+        record(userId, -1, wasCompleted ? -1 : 0, 0);
+    }
+
+    // Call BEFORE the task is updated: the status it is compared against is read from the row
+    public void recordStatusChange(Long userId, Long taskId, boolean completed) {
+        if (taskStatsRepository.changeCompleted(userId, taskId, completed) == 1 && completed) {
+            taskCompletionDayRepository.add(userId, today(), 1);
+        }
+    }
+
+    // For writes that already know the net effect, like a batch: one statement per table instead of one per task
+    public void record(Long userId, long totalDelta, long completedDelta, long completions) {
+        if (totalDelta != 0 || completedDelta != 0) {
+            taskStatsRepository.add(userId, totalDelta, completedDelta);
+        }
+        if (completions > 0) {
+            taskCompletionDayRepository.add(userId, today(), completions);
+        }
+    }
+
+    // days = 0 leaves out the daily buckets
+    public TaskStatistics getStatistics(Long userId, int days) {
+        TaskStats stats = taskStatsRepository.findById(userId).orElseGet(TaskStats::new);
+        List<TaskStatistics.Day> daily = null;
+        if (days > 0) {
+            LocalDate today = today();
+            LocalDate from = today.minusDays(days - 1L);
+            Map<LocalDate, Long> completions = new HashMap<>();
+            for (TaskCompletionDay day : taskCompletionDayRepository.findByUserIdAndDayGreaterThanEqualOrderByDayAsc(userId, from)) {
+                completions.put(day.getDay(), day.getCompletions());
+            }
+            daily = new ArrayList<>();
+            for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+                daily.add(new TaskStatistics.Day(date, completions.getOrDefault(date, 0L)));
+            }
+        }
+        return new TaskStatistics(stats.getTotal(), stats.getCompleted(), stats.getTotal() - stats.getCompleted(), daily);
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+}
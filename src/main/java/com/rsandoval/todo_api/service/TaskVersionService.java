@@ -0,0 +1,37 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.model.TaskListVersion;
+import com.rsandoval.todo_api.repository.TaskListVersionRepository;
+import org.springframework.stereotype.Service;
+
+// Keeps the per-user task list version that our ETags are built from.
+// The version lives in the database (not in memory) so every instance of the app agrees on it.
+@Service
+public class TaskVersionService {
+
+    private final TaskListVersionRepository taskListVersionRepository;
+
+    public TaskVersionService(TaskListVersionRepository taskListVersionRepository) {
+        this.taskListVersionRepository = taskListVersionRepository;
+    }
+
+    // Users who never wrote anything don't have a row yet: that's version 0
+    public long currentVersion(Long userId) {
+        return taskListVersionRepository.findById(userId)
+                .map(TaskListVersion::getVersion)
+                .orElse(0L);
+    }
+
+    // Call INSIDE the transaction of the task write and stamp the written rows with the result.
+    // The new version only becomes visible together with the data it describes, and the row lock it takes
+    // makes a user's writes commit in version order (so sync clients can't skip over a change).
+    public long nextVersion(Long userId) {
+        return taskListVersionRepository.increment(userId);
+    }
+
+    // Orders the write like nextVersion does, without changing the version yet. Returns the current version:
+    // until the transaction ends, the next one is this + 1. Call nextVersion as well if anything is written
+    public long lock(Long userId) {
+        return taskListVersionRepository.lock(userId);
+    }
+}
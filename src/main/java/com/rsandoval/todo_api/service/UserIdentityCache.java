@@ -0,0 +1,73 @@
+package com.rsandoval.todo_api.service;
+
+import com.rsandoval.todo_api.model.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+// Remembers who a username is (id, role, current password hash) for a short while, so authenticating
+// a request doesn't need a round-trip to Postgres every time. Bounded in size, and every entry expires
+// after the TTL: that's the upper limit on how stale a node can be if it misses an invalidation.
+// This node invalidates on its own writes (register, password re-hash); other nodes can be told to
+// through the "usercache" actuator endpoint (UserIdentityCacheEndpoint).
+@Service
+public class UserIdentityCache {
+
+    // Immutable on purpose: Spring Security erases the password of the principal it is given,
+    // so callers get a fresh AuthenticatedUser built from this, never a shared object
+    public record UserIdentity(Long id, String username, String passwordHash, String role) {
+        public static UserIdentity of(User user) {
+            return new UserIdentity(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
+        }
+    }
+
+    private final BoundedExpiringCache<String, UserIdentity> entries;
+    private final long ttlMillis;
+
+    private final LongAdder invalidations = new LongAdder();
+
+    public UserIdentityCache(@Value("${todo.user-cache.max-size:10000}") int maxEntries,
+                             @Value("${todo.user-cache.ttl:5m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.entries = new BoundedExpiringCache<>(maxEntries);
+        this.ttlMillis = ttl.toMillis();
+
+        FunctionCounter.builder("user.identity.cache.gets", entries, BoundedExpiringCache::getHitCount).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("user.identity.cache.gets", entries, BoundedExpiringCache::getMissCount).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("user.identity.cache.evictions", entries, BoundedExpiringCache::getEvictionCount).register(meterRegistry);
+        FunctionCounter.builder("user.identity.cache.invalidations", invalidations, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("user.identity.cache.size", entries, BoundedExpiringCache::size).register(meterRegistry);
+    }
+
+    // Returns the cached identity, or null if there is none (or it has expired)
+    public UserIdentity get(String username) {
+        return entries.get(username);
+    }
+
+    public void put(UserIdentity identity) {
+        entries.put(identity.username(), identity, System.currentTimeMillis() + ttlMillis);
+    }
+
+    // Call whenever anything we cache about this user changes (password, role) or the user is created
+    public void invalidate(String username) {
+        if (entries.remove(username)) {
+            invalidations.increment();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.add(entries.size());
+        entries.clear();
+    }
+
+    public long getHitCount() { return entries.getHitCount(); }
+    public long getMissCount() { return entries.getMissCount(); }
+    public long getEvictionCount() { return entries.getEvictionCount(); }
+    public long getInvalidationCount() { return invalidations.sum(); }
+    public int size() { return entries.size(); }
+}
@@ -0,0 +1,52 @@
+package com.rsandoval.todo_api.service;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+// Remembers tokens whose signature we already verified, so a client re-using the same
+// bearer token doesn't pay for base64 decoding + HMAC + JSON parsing on every request.
+// Entries are keyed by a SHA-256 digest of the token (we never keep the raw token around)
+// and drop out on their own once the token's "exp" claim has passed (see BoundedExpiringCache for the size bound).
+public class VerifiedTokenCache {
+
+    private final BoundedExpiringCache<String, Claims> entries;
+
+    public VerifiedTokenCache(int maxEntries) {
+        this.entries = new BoundedExpiringCache<>(maxEntries);
+    }
+
+    // Returns the cached claims, or null if the token is unknown or has expired since it was cached
+    public Claims get(String token) {
+        return entries.get(digest(token));
+    }
+
+    public void put(String token, Claims claims) {
+        // Tokens without an expiration would live forever; don't cache them
+        if (claims.getExpiration() == null) return;
+        entries.put(digest(token), claims, claims.getExpiration().getTime());
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHitCount() { return entries.getHitCount(); }
+    public long getMissCount() { return entries.getMissCount(); }
+    public long getEvictionCount() { return entries.getEvictionCount(); }
+    public int size() { return entries.size(); }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to ship SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
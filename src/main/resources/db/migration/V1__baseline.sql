@@ -0,0 +1,45 @@
+-- The schema as Hibernate's ddl-auto=update used to leave it. Written so that it changes nothing on a database
+-- created back then (every statement is IF NOT EXISTS), which lets Flyway take such a database over as it is
+-- (spring.flyway.baseline-on-migrate), while a new database ends up exactly the same.
+
+CREATE TABLE IF NOT EXISTS users (
+    id       bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username varchar(255) NOT NULL CONSTRAINT users_username_key UNIQUE,
+    password varchar(255) NOT NULL,
+    role     varchar(255)
+);
+
+-- Task ids come from a pooled sequence, 50 per nextval (see Task)
+CREATE SEQUENCE IF NOT EXISTS task_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS task (
+    id          bigint PRIMARY KEY,
+    description varchar(255),
+    completed   boolean NOT NULL,
+    user_id     bigint NOT NULL CONSTRAINT fk_task_user REFERENCES users
+);
+-- Added to task over time: optimistic locking, delta sync, soft delete
+ALTER TABLE task ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE task ADD COLUMN IF NOT EXISTS change_version bigint NOT NULL DEFAULT 0;
+ALTER TABLE task ADD COLUMN IF NOT EXISTS deleted boolean NOT NULL DEFAULT false;
+
+-- Delta sync: this user's changes after a given (change_version, id)
+CREATE INDEX IF NOT EXISTS idx_task_user_change_version ON task (user_id, change_version, id);
+
+CREATE TABLE IF NOT EXISTS task_list_version (
+    user_id bigint PRIMARY KEY,
+    version bigint NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS task_stats (
+    user_id   bigint PRIMARY KEY,
+    total     bigint NOT NULL,
+    completed bigint NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS task_completion_day (
+    user_id     bigint NOT NULL,
+    day         date NOT NULL,
+    completions bigint NOT NULL,
+    PRIMARY KEY (user_id, day)
+);
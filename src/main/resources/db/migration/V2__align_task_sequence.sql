@@ -0,0 +1,4 @@
+-- Tasks used to get their ids from an IDENTITY column. Move task_seq past the highest existing id
+-- so the pooled sequence never hands out an id that is already taken. GREATEST keeps it from ever
+-- moving backwards.
+SELECT setval('task_seq', GREATEST((SELECT last_value FROM task_seq), (SELECT COALESCE(MAX(id), 0) FROM task)));
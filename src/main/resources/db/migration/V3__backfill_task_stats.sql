@@ -0,0 +1,9 @@
+-- Task counts for users who had tasks before task_stats existed. Users that already have a row are left
+-- alone (their counts are maintained by the app).
+-- There is no history to rebuild daily completions from; those start counting from now on.
+INSERT INTO task_stats (user_id, total, completed)
+SELECT user_id, COUNT(*), COUNT(*) FILTER (WHERE completed)
+FROM task
+WHERE deleted = false AND user_id NOT IN (SELECT user_id FROM task_stats)
+GROUP BY user_id
+ON CONFLICT (user_id) DO NOTHING;
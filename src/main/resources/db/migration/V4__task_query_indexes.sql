@@ -0,0 +1,14 @@
+-- Indexes for the task queries in TaskRepository (RepositoryQueryPlanTests checks that each of them uses one).
+-- Built without CONCURRENTLY (Flyway runs each migration in a transaction): writes to task wait for the build.
+
+-- Listings, pages and export: WHERE user_id = ? [AND completed = ?] [AND (completed, id) > (?, ?)]
+-- ORDER BY completed, id (or just id). Only live tasks, which is what every JPQL query asks for (@SQLRestriction
+-- on Task), so tombstones don't take up room. With the description included, the TaskView pages are answered
+-- from the index alone, without visiting the table.
+CREATE INDEX IF NOT EXISTS idx_task_user_completed_id ON task (user_id, completed, id) INCLUDE (description)
+    WHERE deleted = false;
+
+-- Full-text search (TaskRepository.searchByUserId). An index on the expression itself, so there is no extra
+-- column to keep in sync: the query must use exactly the same to_tsvector(...) expression for Postgres to pick it.
+-- 'simple' = no stemming or stop words, which works the same for any language people write their tasks in.
+CREATE INDEX IF NOT EXISTS idx_task_description_search ON task USING GIN (to_tsvector('simple', coalesce(description, '')));
@@ -0,0 +1,15 @@
+-- Idempotency-Key header (IdempotencyService): the response each key got, so a retried request can be answered
+-- with it instead of being run again. Rows are claimed and filled in within the transaction of the request itself,
+-- so a committed row always has its response. Expired rows are deleted by a periodic purge (the created_at index).
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    user_id         bigint NOT NULL,
+    idempotency_key varchar(255) NOT NULL,
+    request_hash    varchar(64) NOT NULL,
+    status          integer,
+    etag            varchar(255),
+    body            text,
+    created_at      timestamp(6) with time zone NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_created_at ON idempotency_key (created_at);
@@ -0,0 +1,260 @@
+let authToken = null;
+let currentTasks = [];
+let streamConnected = false;
+const API_URL = '/api';
+
+async function login() {
+    const username = document.getElementById('username').value;
+    const password = document.getElementById('password').value;
+
+    try {
+        const response = await fetch(`${API_URL}/auth/login`, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ username, password })
+        });
+
+        if (response.ok) {
+            authToken = await response.text();
+
+            document.getElementById('login-section').classList.add('hidden');
+            document.getElementById('app-section').classList.remove('hidden');
+            document.getElementById('welcome-msg').innerText = `Hello, ${username}!`;
+
+            loadTasks();
+            openTaskStream();
+        } else {
+            document.getElementById('login-error').innerText = "Invalid credentials";
+        }
+    } catch (error) {
+        console.error("Login error:", error);
+    }
+}
+
+function showRegister() {
+    document.getElementById('login-section').classList.add('hidden');
+    document.getElementById('register-section').classList.remove('hidden');
+    document.getElementById('reg-error').innerText = '';
+}
+
+function showLogin() {
+    document.getElementById('register-section').classList.add('hidden');
+    document.getElementById('login-section').classList.remove('hidden');
+    document.getElementById('login-error').innerText = '';
+}
+
+async function register() {
+    const username = document.getElementById('reg-username').value;
+    const password = document.getElementById('reg-password').value;
+
+    if (!username || !password) {
+        document.getElementById('reg-error').innerText = "Usename and password required";
+        return;
+    }
+
+    try {
+        const response = await fetch(`${API_URL}/auth/register`, {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ username, password })
+        });
+
+        if (response.ok) {
+            alert("Registration successful! Please log in.");
+            showLogin();
+        } else {
+            const msg = await response.text();
+            document.getElementById('reg-error').innerText = "Error: " + msg;
+        }
+    } catch (error) {
+        console.error("Registration error:", error);
+        document.getElementById('reg-error').innerText = "Network error occurred.";
+    }
+}
+
+function logout() {
+    authToken = null;
+    window.location.reload();
+}
+
+async function loadTasks() {
+    if (!authToken) return;
+
+    try {
+        // The list comes back one page at a time; follow the cursor until there is no next page
+        const tasks = [];
+        let cursor = null;
+        do {
+            const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : '';
+            const response = await fetch(`${API_URL}/tasks${query}`, {
+                method: 'GET',
+                headers: {
+                    // Attach the badge here
+                    'Authorization': `Bearer ${authToken}`,
+                    'Content-Type': 'application/json'
+                }
+            });
+
+            if (!response.ok) {
+                console.error("Failed to load tasks:", response.status);
+                if (response.status === 403) logout(); // If Token expired
+                return;
+            }
+            tasks.push(...await response.json());
+            cursor = response.headers.get('X-Next-Cursor');
+        } while (cursor);
+
+        currentTasks = tasks;
+        renderTasks(tasks);
+    } catch (error) {
+        console.error("Network error:", error);
+    }
+}
+
+// Live updates: the server pushes every committed change, so we patch the list in place
+// instead of reloading it after each action. EventSource can't send an Authorization
+// header, so the text/event-stream is read by hand with fetch.
+async function openTaskStream() {
+    while (authToken) {
+        try {
+            const response = await fetch(`${API_URL}/tasks/stream`, {
+                headers: { 'Authorization': `Bearer ${authToken}`, 'Accept': 'text/event-stream' }
+            });
+            if (!response.ok) return;
+            if (streamConnected === null) loadTasks(); // Reconnected: catch up on what we missed
+            streamConnected = true;
+
+            const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+            let buffer = '';
+            while (true) {
+                const { value, done } = await reader.read();
+                if (done) break;
+                buffer += value;
+                // Events are separated by a blank line
+                let end;
+                while ((end = buffer.indexOf('\n\n')) >= 0) {
+                    handleStreamEvent(buffer.slice(0, end));
+                    buffer = buffer.slice(end + 2);
+                }
+            }
+        } catch (error) {
+            console.error("Task stream error:", error);
+        }
+        streamConnected = null; // Lost it: actions fall back to reloading until we are back
+        await new Promise(resolve => setTimeout(resolve, 3000));
+    }
+}
+
+function handleStreamEvent(block) {
+    let type = 'message';
+    let data = '';
+    block.split('\n').forEach(line => {
+        if (line.startsWith('event:')) type = line.slice(6).trim();
+        else if (line.startsWith('data:')) data += line.slice(5);
+    });
+    if (!data) return; // e.g. the initial "connected" comment
+
+    applyTaskEvent(type, JSON.parse(data));
+}
+
+function applyTaskEvent(type, event) {
+    currentTasks = currentTasks.filter(t => t.id !== event.id);
+    if (type === 'created' || type === 'updated') {
+        currentTasks.push(event);
+    }
+    // Same order as the server: open tasks first, then by id
+    currentTasks.sort((a, b) => (a.completed - b.completed) || (a.id - b.id));
+    renderTasks(currentTasks);
+}
+
+function renderTasks(tasks) {
+    const listDiv = document.getElementById('task-list');
+    listDiv.innerHTML = ''; // Clear current list
+
+    tasks.forEach(task => {
+        const div = document.createElement('div');
+        div.className = 'task';
+
+        const checked = task.completed ? 'checked' : '';
+        // Simple HTML for each task
+        div.innerHTML = `
+            <div style="display: flex; align-items: center; gap: 10px;"">
+                <input type="checkbox" ${checked} onclick="toggleTask(${task.id})">
+
+                <span style="${task.completed ? 'text-decoration: line-through; color: gray;' : ''}">
+                    ${task.description}
+                </span>
+            </div>
+            <button onclick="deleteTask(${task.id})" style="color:red; border:none; background:none;">X</button>
+        `;
+        listDiv.appendChild(div);
+    })
+}
+
+async function addTask() {
+    const descInput = document.getElementById('new-task-desc');
+    const description = descInput.value;
+    if (!description) return;
+
+    try {
+        const response = await fetch(`${API_URL}/tasks`, {
+            method: 'POST',
+            headers: {
+                'Authorization': `Bearer ${authToken}`,
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify({
+                description: description,
+                completed: false
+            })
+        });
+
+        if (response.ok) {
+            descInput.value = ''; // Clear input
+            if (!streamConnected) loadTasks(); // Otherwise the stream delivers the new task
+        }
+    } catch (error) {
+        console.error("Error adding task:", error);
+    }
+}
+
+async function deleteTask(id) {
+    if (!confirm("Delete this task?")) return;
+
+    await fetch(`${API_URL}/tasks/${id}`, {
+        method: 'DELETE',
+        headers: { 'Authorization': `Bearer ${authToken}` }
+    });
+    if (!streamConnected) loadTasks();
+}
+
+async function toggleTask(id) {
+    const task = currentTasks.find(t => t.id === id);
+    if (!task) return;
+
+    try {
+        const response = await fetch(`${API_URL}/tasks/${id}`, {
+            method: 'PUT',
+            headers: { 
+                'Authorization': `Bearer ${authToken}`,
+                'Content-Type': 'application/json',
+                // A click only flips the status: fine to have it written a moment later (202)
+                'Prefer': 'respond-async'
+            },
+            body: JSON.stringify({
+                description: task.description,
+                completed: !task.completed
+            })
+        });
+
+        if (response.status === 202) {
+            // Queued on the server; the stream only reports it once it is written, so show it now
+            applyTaskEvent('updated', await response.json());
+        } else if (!streamConnected) {
+            loadTasks();
+        }
+
+    } catch (error) {
+        console.error("Error updating task:", error);
+    }
+}
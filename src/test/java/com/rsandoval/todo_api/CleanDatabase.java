@@ -0,0 +1,19 @@
+package com.rsandoval.todo_api;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+// Import into tests that run against the real test database: every new application context starts from
+// an empty schema, built by the same migrations as production (needs spring.flyway.clean-disabled=false)
+@TestConfiguration(proxyBeanMethods = false)
+public class CleanDatabase {
+
+    @Bean
+    FlywayMigrationStrategy cleanThenMigrate() {
+        return flyway -> {
+            flyway.clean();
+            flyway.migrate();
+        };
+    }
+}
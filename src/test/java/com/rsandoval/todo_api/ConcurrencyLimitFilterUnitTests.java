@@ -0,0 +1,35 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.config.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterUnitTests {
+
+    @Test
+    void testBusyFilter_ShouldRefuseWith503AndReportSaturation() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ZERO, registry);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks"), new MockHttpServletResponse(), (req, res) -> {
+            // The only permit is held by this request
+            assertThat(registry.get("http.concurrency.permits.available").gauge().value()).isZero();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/tasks"), second, (r, s) -> {
+                throw new AssertionError("should not run");
+            });
+        });
+
+        assertThat(second.getStatus()).isEqualTo(503);
+        assertThat(second.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(registry.get("http.concurrency.rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get("http.concurrency.permits.max").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("http.concurrency.permits.available").gauge().value()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,114 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.config.AuthenticatedUser;
+import com.rsandoval.todo_api.service.JwtService;
+import com.rsandoval.todo_api.service.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Plain unit tests: no Spring context needed, JwtService falls back to its dummy key
+class JwtServiceUnitTests {
+
+    private final JwtService jwtService = new JwtService();
+
+    private UserDetails user(String username) {
+        return User.builder()
+                .username(username)
+                .password("irrelevant")
+                .roles("USER")
+                .build();
+    }
+
+    @Test
+    void testVerifyToken_ShouldOnlyParseOnceForRepeatedToken() {
+        String token = jwtService.generateToken(user("testuser"));
+        VerifiedTokenCache cache = jwtService.getTokenCache();
+
+        Claims first = jwtService.verifyToken(token);
+        Claims second = jwtService.verifyToken(token);
+
+        assertThat(first.getSubject()).isEqualTo("testuser");
+        // The second call is answered from the cache with the very same claims object
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testIsTokenValid_ShouldCheckSubjectAgainstUser() {
+        String token = jwtService.generateToken(user("testuser"));
+
+        assertThat(jwtService.isTokenValid(token, user("testuser"))).isTrue();
+        assertThat(jwtService.isTokenValid(token, user("someoneelse"))).isFalse();
+        assertThat(jwtService.extractUsername(token)).isEqualTo("testuser");
+    }
+
+    @Test
+    void testGenerateToken_ForAuthenticatedUser_ShouldCarryIdAndRole() {
+        String token = jwtService.generateToken(new AuthenticatedUser(42L, "testuser", "hash", "USER"));
+
+        AuthenticatedUser principal = jwtService.extractAuthenticatedUser(jwtService.verifyToken(token));
+
+        assertThat(principal).isNotNull();
+        assertThat(principal.getId()).isEqualTo(42L);
+        assertThat(principal.getUsername()).isEqualTo("testuser");
+        assertThat(principal.getPassword()).isNull();
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void testExtractAuthenticatedUser_ForTokenWithoutId_ShouldReturnNull() {
+        String token = jwtService.generateToken(user("testuser"));
+
+        assertThat(jwtService.extractAuthenticatedUser(jwtService.verifyToken(token))).isNull();
+    }
+
+    @Test
+    void testVerifyToken_WhenTampered_ShouldThrowAndNotBeCached() {
+        String token = jwtService.generateToken(user("testuser"));
+        // Flip the first character of the signature
+        int sigStart = token.lastIndexOf('.') + 1;
+        char first = token.charAt(sigStart);
+        String tampered = token.substring(0, sigStart) + (first == 'A' ? 'B' : 'A') + token.substring(sigStart + 1);
+
+        assertThatThrownBy(() -> jwtService.verifyToken(tampered)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtService.verifyToken(tampered)).isInstanceOf(JwtException.class);
+        assertThat(jwtService.getTokenCache().getHitCount()).isZero();
+    }
+
+    @Test
+    void testTokenCache_ShouldStayBounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        for (String name : new String[]{"a", "b", "c", "d"}) {
+            String token = jwtService.generateToken(user(name));
+            cache.put(token, jwtService.verifyToken(token));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+        assertThat(cache.getEvictionCount()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void testTokenCache_ShouldMakeRoomInBulk() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(20);
+        for (int i = 0; i < 21; i++) {
+            String token = jwtService.generateToken(user("user" + i));
+            cache.put(token, jwtService.verifyToken(token));
+        }
+        // The 21st put found the cache full and took it down to 90% (18) before adding itself
+        assertThat(cache.size()).isEqualTo(19);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+
+        // The next one fits without another scan
+        String token = jwtService.generateToken(user("one-more"));
+        cache.put(token, jwtService.verifyToken(token));
+        assertThat(cache.size()).isEqualTo(20);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,78 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.config.AdaptiveBCryptPasswordEncoder;
+import com.rsandoval.todo_api.config.BoundedPasswordEncoder;
+import com.rsandoval.todo_api.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingUnitTests {
+
+    @Test
+    void testAdaptiveBCrypt_ShouldAskForRehashWhenCostDiffers() {
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(5);
+        String current = encoder.encode("password");
+
+        // The cost is part of the hash itself
+        assertThat(current).startsWith("$2a$05$");
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+        // Weaker and stronger hashes both get redone at the configured cost
+        assertThat(encoder.upgradeEncoding(new AdaptiveBCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new AdaptiveBCryptPasswordEncoder(6).encode("password"))).isTrue();
+        // ...and still match in the meantime
+        assertThat(encoder.matches("password", new AdaptiveBCryptPasswordEncoder(4).encode("password"))).isTrue();
+    }
+
+    @Test
+    void testBoundedEncoder_WhenPoolIsFull_ShouldRejectWithRetryAfter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals(encode(rawPassword));
+            }
+        };
+
+        // One thread, one queue slot
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1, Duration.ofSeconds(10), new SimpleMeterRegistry())) {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+            started.await(5, TimeUnit.SECONDS);
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+            // Give the second one time to take the queue slot
+            Thread.sleep(200);
+
+            assertThatThrownBy(() -> encoder.encode("third"))
+                    .isInstanceOfSatisfying(PasswordHashingBusyException.class, e -> {
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                        assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+                    });
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hashed:first");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hashed:second");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.config.AuthenticatedUser;
+import com.rsandoval.todo_api.config.RateLimitFilter;
+import com.rsandoval.todo_api.config.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterUnitTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testLimiter_ShouldAllowTheBurstThenRefillAtTheRate() {
+        AtomicLong now = new AtomicLong();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 3, now::get);
+
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        // Empty: the next token comes in half a second
+        assertThat(limiter.tryAcquire("alice")).isEqualTo(SECOND / 2);
+        // Somebody else has their own bucket
+        assertThat(limiter.tryAcquire("bob")).isZero();
+
+        now.addAndGet(SECOND / 2);
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isPositive();
+
+        // Once the buckets are full again, the keys are forgotten
+        now.addAndGet(SECOND);
+        limiter.evictIdle();
+        assertThat(limiter.size()).isEqualTo(1);
+        now.addAndGet(SECOND);
+        limiter.evictIdle();
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void testFilter_ShouldLimitTasksPerUserAndAuthPerIp() throws Exception {
+        AtomicLong now = new AtomicLong();
+        RateLimitFilter filter = new RateLimitFilter(Map.of(
+                RateLimitFilter.Group.AUTH, new TokenBucketRateLimiter(1, 1, now::get),
+                RateLimitFilter.Group.TASK_WRITES, new TokenBucketRateLimiter(1, 2, now::get)),
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+        try {
+            // Two users behind the same IP don't share a bucket
+            assertThat(send(filter, "POST", "/api/tasks", 1L)).isEqualTo(200);
+            assertThat(send(filter, "POST", "/api/tasks", 1L)).isEqualTo(200);
+            MockHttpServletResponse limited = response(filter, "PUT", "/api/tasks/5", 1L);
+            assertThat(limited.getStatus()).isEqualTo(429);
+            assertThat(limited.getHeader("Retry-After")).isEqualTo("1");
+            assertThat(send(filter, "DELETE", "/api/tasks/5", 2L)).isEqualTo(200);
+
+            // No limit configured for reads
+            for (int i = 0; i < 10; i++) {
+                assertThat(send(filter, "GET", "/api/tasks", 1L)).isEqualTo(200);
+            }
+
+            // Logins count against the IP, whoever is logged in
+            assertThat(send(filter, "POST", "/api/auth/login", null)).isEqualTo(200);
+            assertThat(send(filter, "POST", "/api/auth/login", 3L)).isEqualTo(429);
+            now.addAndGet(SECOND);
+            assertThat(send(filter, "POST", "/api/auth/login", null)).isEqualTo(200);
+
+            // Not an API endpoint
+            assertThat(List.of(send(filter, "GET", "/index.html", null), send(filter, "GET", "/index.html", null)))
+                    .containsOnly(200);
+        } finally {
+            filter.destroy();
+        }
+    }
+
+    private static int send(RateLimitFilter filter, String method, String path, Long userId) throws Exception {
+        return response(filter, method, path, userId).getStatus();
+    }
+
+    private static MockHttpServletResponse response(RateLimitFilter filter, String method, String path, Long userId)
+            throws Exception {
+        if (userId == null) {
+            SecurityContextHolder.clearContext();
+        } else {
+            AuthenticatedUser user = new AuthenticatedUser(userId, "user" + userId, null, "USER");
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,229 @@
+package com.rsandoval.todo_api;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.rsandoval.todo_api.dto.TaskView;
+import com.rsandoval.todo_api.repository.IdempotencyRecordRepository;
+import com.rsandoval.todo_api.repository.TaskCompletionDayRepository;
+import com.rsandoval.todo_api.repository.TaskListVersionRepository;
+import com.rsandoval.todo_api.repository.TaskRepository;
+import com.rsandoval.todo_api.repository.TaskStatsRepository;
+import com.rsandoval.todo_api.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Every repository query must be answerable through an index, whatever the table size. For each one we take the
+// SQL Hibernate actually sends (from the org.hibernate.SQL log) and EXPLAIN it with sequential scans switched off:
+// Postgres then only falls back to a Seq Scan when no index can serve the query at all.
+// The tables are empty, so this checks the indexes exist and fit the queries, not how fast they are.
+// Same setup as TaskApiIntegrationTests, so both share one application context
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+@Import(CleanDatabase.class)
+class RepositoryQueryPlanTests {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskStatsRepository taskStatsRepository;
+
+    @Autowired
+    private TaskCompletionDayRepository taskCompletionDayRepository;
+
+    @Autowired
+    private TaskListVersionRepository taskListVersionRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Logger sqlLogger = (Logger) LoggerFactory.getLogger("org.hibernate.SQL");
+    private final ListAppender<ILoggingEvent> sqlLog = new ListAppender<>();
+
+    // Enough rows for Postgres to choose between indexes the way it would in production (on empty tables
+    // any index will do): 50 users with 400 tasks each, a few of them deleted
+    @BeforeAll
+    static void seedTasks(@Autowired JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("""
+                INSERT INTO users (username, password, role)
+                SELECT 'plan-user-' || n, 'irrelevant', 'USER' FROM generate_series(1, 50) AS n
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO task (id, description, completed, deleted, user_id)
+                SELECT nextval('task_seq'), 'task ' || n, n % 3 = 0, n % 20 = 0, u.id
+                FROM users u, generate_series(1, 400) AS n
+                WHERE u.username LIKE 'plan-user-%'
+                """);
+        // Fresh statistics, and a visibility map like autovacuum keeps on a real table (index-only scans count on it)
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    @AfterAll
+    static void removeTasks(@Autowired JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM task");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'plan-user-%'");
+    }
+
+    @BeforeEach
+    void captureSql() {
+        sqlLogger.setLevel(Level.DEBUG);
+        sqlLogger.setAdditive(false);
+        sqlLogger.addAppender(sqlLog);
+        sqlLog.start();
+    }
+
+    @AfterEach
+    void stopCapturingSql() {
+        sqlLogger.detachAppender(sqlLog);
+        sqlLogger.setAdditive(true);
+        sqlLogger.setLevel(null);
+    }
+
+    @Test
+    void testTaskListQueries_ShouldUseTheirIndex() throws SQLException {
+        // Whole lists of entities: Postgres may as well collect the user's rows through either index and sort them
+        assertUsesIndex("findByUserId", List.of("idx_task_user_completed_id", "idx_task_user_change_version"),
+                () -> taskRepository.findByUserId(1L, Sort.by("completed", "id")));
+        assertUsesIndex("findByUserIdAndCompleted", List.of("idx_task_user_completed_id", "idx_task_user_change_version"),
+                () -> taskRepository.findByUserIdAndCompleted(1L, true));
+        assertUsesIndex("findPageByUserId", "idx_task_user_completed_id",
+                () -> taskRepository.findPageByUserId(1L, false, 0L, Limit.of(20)));
+        assertUsesIndex("findPageByUserIdAndCompleted", "idx_task_user_completed_id",
+                () -> taskRepository.findPageByUserIdAndCompleted(1L, true, 0L, Limit.of(20)));
+        assertUsesIndex("streamByUserId", "idx_task_user_completed_id",
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                    try (Stream<TaskView> tasks = taskRepository.streamByUserId(1L)) {
+                        tasks.forEach(task -> { });
+                    }
+                }));
+        assertUsesIndex("searchByUserId", "idx_task_description_search",
+                () -> taskRepository.searchByUserId(1L, "milk:*", Float.POSITIVE_INFINITY, 0L, 20));
+        assertUsesIndex("findChangesByUserId", "idx_task_user_change_version",
+                () -> taskRepository.findChangesByUserId(1L, 0L, 0L, 20));
+    }
+
+    @Test
+    void testSingleTaskQueries_ShouldUseThePrimaryKey() throws SQLException {
+        assertUsesIndex("findById", "task_pkey", () -> taskRepository.findById(1L));
+        assertUsesIndex("findUncachedById", "task_pkey", () -> taskRepository.findUncachedById(1L));
+        assertUsesIndex("findVersionByIdAndUserId", "task_pkey", () -> taskRepository.findVersionByIdAndUserId(1L, 1L));
+        assertUsesIndex("findAllByIdIn", "task_pkey", () -> taskRepository.findAllByIdIn(List.of(1L, 2L)));
+        assertUsesIndex("updateByIdAndUserId", "task_pkey",
+                () -> taskRepository.updateByIdAndUserId(1L, 1L, "x", true, 1L));
+        assertUsesIndex("updateByIdAndUserIdAndVersion", "task_pkey",
+                () -> taskRepository.updateByIdAndUserIdAndVersion(1L, 1L, 0L, "x", true, 1L));
+        assertUsesIndex("updateCompletedByIdAndUserId", "task_pkey",
+                () -> taskRepository.updateCompletedByIdAndUserId(1L, 1L, true, 1L));
+        assertUsesIndex("markDeletedByIdAndUserId", "task_pkey",
+                () -> taskRepository.markDeletedByIdAndUserId(1L, 1L, 1L));
+    }
+
+    @Test
+    void testUserAndStatsQueries_ShouldUseTheirIndex() throws SQLException {
+        assertUsesIndex("findByUsername", "users_username_key", () -> userRepository.findByUsername("nobody"));
+        assertUsesIndex("updatePasswordByUsername", "users_username_key",
+                () -> userRepository.updatePasswordByUsername("nobody", "x"));
+        assertUsesIndex("TaskStats findById", "task_stats_pkey", () -> taskStatsRepository.findById(1L));
+        assertUsesIndex("changeCompleted", "task_stats_pkey", () -> taskStatsRepository.changeCompleted(1L, 1L, true));
+        assertUsesIndex("findByUserIdAndDayGreaterThanEqualOrderByDayAsc", "task_completion_day_pkey",
+                () -> taskCompletionDayRepository.findByUserIdAndDayGreaterThanEqualOrderByDayAsc(1L, LocalDate.now()));
+        assertUsesIndex("TaskListVersion findById", "task_list_version_pkey",
+                () -> taskListVersionRepository.findById(1L));
+        Instant now = Instant.now();
+        assertUsesIndex("idempotency claim", "idempotency_key_pkey",
+                () -> idempotencyRecordRepository.claim(1L, "key", "hash", now, now));
+        assertUsesIndex("idempotency complete", "idempotency_key_pkey",
+                () -> idempotencyRecordRepository.complete(1L, "key", 201, null, "{}"));
+        assertUsesIndex("idempotency deleteExpired", "idx_idempotency_key_created_at",
+                () -> idempotencyRecordRepository.deleteExpired(now));
+    }
+
+    private void assertUsesIndex(String query, String index, Runnable repositoryCall) throws SQLException {
+        assertUsesIndex(query, List.of(index), repositoryCall);
+    }
+
+    private void assertUsesIndex(String query, List<String> indexes, Runnable repositoryCall) throws SQLException {
+        // Otherwise a cached result could answer the call without any SQL
+        entityManagerFactory.getCache().evictAll();
+        sqlLog.list.clear();
+
+        repositoryCall.run();
+
+        assertThat(sqlLog.list).as("SQL sent by %s", query).isNotEmpty();
+        String sql = sqlLog.list.get(sqlLog.list.size() - 1).getFormattedMessage();
+        String plan = explain(sql);
+        assertThat(plan).as("plan of %s (%s):%n%s", query, sql, plan).containsAnyOf(indexes.toArray(String[]::new)).doesNotContain("Seq Scan");
+    }
+
+    // The plan Postgres would use for any parameter values (GENERIC_PLAN, Postgres 16+), never executed.
+    // On a connection of its own in simple query mode: the driver would otherwise send the $n placeholders
+    // as parameters of the EXPLAIN itself, and the pool never sees enable_seqscan switched off
+    private String explain(String sql) throws SQLException {
+        StringBuilder numbered = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        Properties settings = new Properties();
+        settings.setProperty("user", dataSourceProperties.getUsername());
+        settings.setProperty("password", dataSourceProperties.getPassword());
+        settings.setProperty("preferQueryMode", "simple");
+        try (Connection connection = DriverManager.getConnection(dataSourceProperties.getUrl(), settings);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet lines = statement.executeQuery("EXPLAIN (GENERIC_PLAN) " + numbered)) {
+                while (lines.next()) {
+                    plan.append(lines.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.config.ResponseCompressionFilter;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressionFilterUnitTests {
+
+    private static final String BIG_JSON = "[\"" + "x".repeat(5000) + "\"]";
+
+    private final ResponseCompressionFilter filter =
+            new ResponseCompressionFilter(1024, List.of(MediaType.APPLICATION_JSON), 6, 4);
+
+    private static MockHttpServletRequest gzipRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks");
+        request.addHeader("Accept-Encoding", "gzip");
+        return request;
+    }
+
+    @Test
+    void testAsyncResponse_ShouldGetItsTrailerOnceComplete() throws Exception {
+        MockHttpServletRequest request = gzipRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<AsyncContext> async = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> async.set(req.startAsync(req, res)));
+
+        // The body is written later, from another thread, like an async result
+        HttpServletResponse compressing = (HttpServletResponse) async.get().getResponse();
+        compressing.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        compressing.getOutputStream().write(BIG_JSON.getBytes(StandardCharsets.UTF_8));
+        async.get().complete();
+
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(BIG_JSON);
+        }
+    }
+
+    @Test
+    void testNonBlockingWrites_ShouldPassThroughUncompressed() throws Exception {
+        MockHttpServletRequest request = gzipRequest();
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        AtomicReference<WriteListener> registered = new AtomicReference<>();
+        ServletOutputStream socket = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                sent.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return registered.get() != null;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                registered.set(writeListener);
+            }
+        };
+        HttpServletResponse response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return socket;
+            }
+        };
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            ServletOutputStream out = res.getOutputStream();
+            out.write("[".getBytes(StandardCharsets.UTF_8));
+            out.setWriteListener(listener);
+            // From here on the container's readiness is what counts
+            assertThat(out.isReady()).isTrue();
+            out.write(BIG_JSON.substring(1).getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertThat(registered.get()).isSameAs(listener);
+        assertThat(response.getHeader("Content-Encoding")).isNull();
+        assertThat(sent.toString(StandardCharsets.UTF_8)).isEqualTo(BIG_JSON);
+    }
+}
@@ -1,25 +1,68 @@
 package com.rsandoval.todo_api;
 
+import com.rsandoval.todo_api.controller.TaskController;
+import com.rsandoval.todo_api.dto.LoginRequest;
+import com.rsandoval.todo_api.dto.TaskBatchOperation;
+import com.rsandoval.todo_api.dto.TaskBatchResult;
+import com.rsandoval.todo_api.dto.TaskChanges;
+import com.rsandoval.todo_api.dto.TaskStatistics;
+import com.rsandoval.todo_api.dto.TaskView;
+import com.rsandoval.todo_api.dto.RegisterRequest;
 import com.rsandoval.todo_api.model.Task;
 import com.rsandoval.todo_api.model.User;
 import com.rsandoval.todo_api.repository.TaskRepository;
 import com.rsandoval.todo_api.repository.UserRepository;
 import com.rsandoval.todo_api.service.JwtService;
+import com.rsandoval.todo_api.service.TaskPageCache;
+import com.rsandoval.todo_api.service.UserIdentityCache;
+import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 // 1. We use @SpringBootTest to start the entire application, and tell it to run a random, unused port to avoid conflicts.
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// Tests normally run without metrics exporters; we want the real Prometheus endpoint
+@AutoConfigureObservability
+@Import(CleanDatabase.class)
 public class TaskApiIntegrationTests {
 
     // 2. Spring will automatically inject a real HTTP client that is configured to talk to our running test server
@@ -39,6 +82,21 @@ public class TaskApiIntegrationTests {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private TaskPageCache taskPageCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @LocalManagementPort
+    private int managementPort;
+
     private User testUser;
 
     private HttpHeaders getAuthHeaders() {
@@ -68,8 +126,15 @@ public class TaskApiIntegrationTests {
     // 4. This helper method cleans the database after every test, so our tests don't interfere with each other.
     @AfterEach
     void tearDown() {
-        taskRepository.deleteAll();
+        // Plain SQL so soft-deleted tombstones (invisible to the repository) go too
+        jdbcTemplate.update("DELETE FROM task");
+        jdbcTemplate.update("DELETE FROM idempotency_key");
         userRepository.deleteAll();
+        // The users were deleted behind the app's back, so it has to forget them (like an admin script would)
+        userIdentityCache.invalidateAll();
+        // Same for Hibernate's second-level cache and the listing pages
+        entityManagerFactory.getCache().evictAll();
+        taskPageCache.clear();
     }
 
     @Test
@@ -175,4 +240,851 @@ public class TaskApiIntegrationTests {
                 .extracting(Task::isCompleted)
                 .containsOnly(true);
     }
+
+    @Test
+    void testLogin_WithHashFromOtherCost_ShouldRehashPassword() {
+        User user = new User();
+        user.setUsername("legacyuser");
+        // Made with a cheaper BCrypt cost than the one configured (10)
+        user.setPassword(new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder(4).encode("password"));
+        user.setRole("USER");
+        userRepository.save(user);
+
+        ResponseEntity<String> login = restTemplate.postForEntity(
+                "/api/auth/login", new LoginRequest("legacyuser", "password"), String.class);
+
+        assertThat(login.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String stored = userRepository.findByUsername("legacyuser").orElseThrow().getPassword();
+        assertThat(stored).startsWith("$2a$10$");
+        assertThat(passwordEncoder.matches("password", stored)).isTrue();
+    }
+
+    @Test
+    void testLogin_ShouldServeRepeatLookupsFromCacheUntilInvalidated() {
+        getAuthHeaders(); // creates "testuser" with password "password"
+        userIdentityCache.invalidateAll();
+        long hitsBefore = userIdentityCache.getHitCount();
+
+        restTemplate.postForEntity("/api/auth/login", new LoginRequest("testuser", "password"), String.class);
+        restTemplate.postForEntity("/api/auth/login", new LoginRequest("testuser", "password"), String.class);
+        assertThat(userIdentityCache.getHitCount() - hitsBefore).isEqualTo(1);
+
+        // The per-node hook on the management port
+        restTemplate.delete("http://localhost:" + managementPort + "/actuator/usercache/testuser");
+        assertThat(userIdentityCache.size()).isZero();
+    }
+
+    @Test
+    void testLoginToken_ShouldIdentifyUserForTaskRequests() {
+        // Go through the real register + login flow so the token carries the user id
+        restTemplate.postForEntity("/api/auth/register", new RegisterRequest("loginuser", "password"), String.class);
+        ResponseEntity<String> login = restTemplate.postForEntity(
+                "/api/auth/login", new LoginRequest("loginuser", "password"), String.class);
+        assertThat(login.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Authorization", "Bearer " + login.getBody());
+        headers.add("Content-Type", "application/json");
+
+        Task task = new Task();
+        task.setDescription("Created with a login token");
+        ResponseEntity<Task> created = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class);
+
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(created.getBody()).isNotNull();
+        User owner = userRepository.findByUsername("loginuser").orElseThrow();
+        assertThat(taskRepository.findByUserIdAndCompleted(owner.getId(), false))
+                .extracting(Task::getDescription)
+                .containsExactly("Created with a login token");
+    }
+
+    @Test
+    void testGetAllTasks_ShouldPageThroughEveryTaskInOrder() {
+        HttpHeaders headers = getAuthHeaders();
+        // Mix open and completed tasks so the cursor has to cross from one group into the other
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task();
+            task.setDescription("Task " + i);
+            task.setCompleted(i % 2 == 0);
+            task.setUser(testUser);
+            taskRepository.save(task);
+        }
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = "/api/tasks?limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            ResponseEntity<Task[]> response = restTemplate.exchange(
+                    url, HttpMethod.GET, new HttpEntity<>(null, headers), Task[].class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).isNotNull();
+            for (Task task : response.getBody()) {
+                seen.add(task.getDescription());
+            }
+            cursor = response.getHeaders().getFirst(TaskController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        // Open tasks first, then completed ones, each group by id
+        assertThat(seen).containsExactly("Task 1", "Task 3", "Task 5", "Task 2", "Task 4");
+    }
+
+    @Test
+    void testGetAllTasks_ProjectionShouldSerializeLikeTheEntity() {
+        HttpHeaders headers = getAuthHeaders();
+        Task task = new Task();
+        task.setDescription("Same JSON either way");
+        ResponseEntity<String> created = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), String.class);
+
+        // Listings are queried as TaskView records, the POST answered with the Task entity itself
+        ResponseEntity<String> list = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(list.getBody()).isEqualTo("[" + created.getBody() + "]");
+        assertThat(created.getBody()).startsWith("{\"id\":").endsWith(",\"description\":\"Same JSON either way\",\"completed\":false}");
+    }
+
+    @Test
+    void testExportTasks_ShouldStreamOneJsonObjectPerLine() throws Exception {
+        HttpHeaders headers = getAuthHeaders();
+        for (int i = 1; i <= 3; i++) {
+            Task task = new Task();
+            task.setDescription("Export me " + i);
+            task.setUser(testUser);
+            taskRepository.save(task);
+        }
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/api/tasks/export", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isNotNull();
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < lines.length; i++) {
+            Task exported = mapper.readValue(lines[i], Task.class);
+            assertThat(exported.getDescription()).isEqualTo("Export me " + (i + 1));
+        }
+    }
+
+    @Test
+    void testBatchTasks_ShouldApplyEachOperationAndReportPerItem() {
+        HttpHeaders headers = getAuthHeaders();
+        Task toUpdate = new Task();
+        toUpdate.setDescription("Old description");
+        toUpdate.setUser(testUser);
+        toUpdate = taskRepository.save(toUpdate);
+        Task toDelete = new Task();
+        toDelete.setDescription("Delete me");
+        toDelete.setUser(testUser);
+        toDelete = taskRepository.save(toDelete);
+
+        // A task that belongs to somebody else
+        User otherUser = new User();
+        otherUser.setUsername("otheruser");
+        otherUser.setPassword("irrelevant");
+        otherUser.setRole("USER");
+        otherUser = userRepository.save(otherUser);
+        Task foreign = new Task();
+        foreign.setDescription("Not yours");
+        foreign.setUser(otherUser);
+        foreign = taskRepository.save(foreign);
+
+        List<TaskBatchOperation> operations = List.of(
+                new TaskBatchOperation(TaskBatchOperation.Type.CREATE, null, "Brand new", false),
+                new TaskBatchOperation(TaskBatchOperation.Type.CREATE, null, "Also new", true),
+                new TaskBatchOperation(TaskBatchOperation.Type.UPDATE, toUpdate.getId(), "New description", true),
+                new TaskBatchOperation(TaskBatchOperation.Type.DELETE, toDelete.getId(), null, null),
+                new TaskBatchOperation(TaskBatchOperation.Type.DELETE, foreign.getId(), null, null),
+                new TaskBatchOperation(TaskBatchOperation.Type.UPDATE, 999_999L, "Missing", false)
+        );
+
+        ResponseEntity<TaskBatchResult[]> response = restTemplate.exchange(
+                "/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(operations, headers), TaskBatchResult[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        TaskBatchResult[] results = response.getBody();
+        assertThat(results).isNotNull();
+        assertThat(results).extracting(TaskBatchResult::status).containsExactly(201, 201, 200, 200, 403, 404);
+        assertThat(results[0].id()).isNotNull();
+        assertThat(results[1].id()).isNotNull().isNotEqualTo(results[0].id());
+
+        // The database reflects the successful operations only
+        assertThat(taskRepository.findById(results[0].id())).get()
+                .extracting(Task::getDescription).isEqualTo("Brand new");
+        assertThat(taskRepository.findById(toUpdate.getId())).get()
+                .extracting(Task::getDescription).isEqualTo("New description");
+        assertThat(taskRepository.findById(toDelete.getId())).isEmpty();
+        assertThat(taskRepository.findById(foreign.getId())).isPresent();
+    }
+
+    @Test
+    void testBatchTasks_ShouldSurviveAnotherNodesWriteAndNotBumpTheVersionForNothing() {
+        HttpHeaders headers = getAuthHeaders();
+        Task task = new Task();
+        task.setDescription("Cached here");
+        Long id = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class)
+                .getBody().getId();
+        // Reading it puts it in this node's second-level cache; then "another node" changes it behind our back
+        restTemplate.exchange("/api/tasks/" + id, HttpMethod.GET, new HttpEntity<>(null, headers), Task.class);
+        jdbcTemplate.update("UPDATE task SET description = 'Changed elsewhere', version = version + 1 WHERE id = ?", id);
+
+        List<TaskBatchOperation> operations = List.of(
+                new TaskBatchOperation(TaskBatchOperation.Type.UPDATE, id, "From a batch", true));
+        ResponseEntity<TaskBatchResult[]> response = restTemplate.exchange(
+                "/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(operations, headers), TaskBatchResult[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(TaskBatchResult::status).containsExactly(200);
+
+        // Nothing but failures: the list (and its ETag) stays as it was
+        String etag = restTemplate.exchange("/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), String.class)
+                .getHeaders().getETag();
+        List<TaskBatchOperation> failing = List.of(
+                new TaskBatchOperation(TaskBatchOperation.Type.UPDATE, 999_999L, "Missing", false),
+                new TaskBatchOperation(TaskBatchOperation.Type.DELETE, 999_998L, null, null));
+        ResponseEntity<TaskBatchResult[]> failed = restTemplate.exchange(
+                "/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(failing, headers), TaskBatchResult[].class);
+        assertThat(failed.getBody()).extracting(TaskBatchResult::status).containsExactly(404, 404);
+        assertThat(restTemplate.exchange("/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), String.class)
+                .getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    @Test
+    void testUpdateAndDeleteTask_ShouldOnlyTouchOwnTasks() {
+        HttpHeaders headers = getAuthHeaders();
+        Task mine = new Task();
+        mine.setDescription("Mine");
+        mine.setUser(testUser);
+        mine = taskRepository.save(mine);
+
+        User otherUser = new User();
+        otherUser.setUsername("otheruser");
+        otherUser.setPassword("irrelevant");
+        otherUser.setRole("USER");
+        otherUser = userRepository.save(otherUser);
+        Task theirs = new Task();
+        theirs.setDescription("Theirs");
+        theirs.setUser(otherUser);
+        theirs = taskRepository.save(theirs);
+
+        Task changes = new Task();
+        changes.setDescription("Mine, done");
+        changes.setCompleted(true);
+        ResponseEntity<Task> updated = restTemplate.exchange(
+                "/api/tasks/" + mine.getId(), HttpMethod.PUT, new HttpEntity<>(changes, headers), Task.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(updated.getBody()).isNotNull();
+        assertThat(updated.getBody().getDescription()).isEqualTo("Mine, done");
+        assertThat(updated.getBody().isCompleted()).isTrue();
+
+        ResponseEntity<String> forbiddenUpdate = restTemplate.exchange(
+                "/api/tasks/" + theirs.getId(), HttpMethod.PUT, new HttpEntity<>(changes, headers), String.class);
+        assertThat(forbiddenUpdate.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        ResponseEntity<String> forbiddenDelete = restTemplate.exchange(
+                "/api/tasks/" + theirs.getId(), HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
+        assertThat(forbiddenDelete.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        ResponseEntity<String> deleted = restTemplate.exchange(
+                "/api/tasks/" + mine.getId(), HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> missing = restTemplate.exchange(
+                "/api/tasks/" + mine.getId(), HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
+        assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        assertThat(taskRepository.findById(mine.getId())).isEmpty();
+        assertThat(taskRepository.findById(theirs.getId())).get()
+                .extracting(Task::getDescription).isEqualTo("Theirs");
+    }
+
+    @Test
+    void testETags_ShouldAllowConditionalGetAndUpdate() {
+        HttpHeaders headers = getAuthHeaders();
+        Task task = new Task();
+        task.setDescription("Cache me");
+        ResponseEntity<Task> created = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class);
+        assertThat(created.getBody()).isNotNull();
+        Long id = created.getBody().getId();
+
+        // First read hands out an ETag; sending it back means "304, you're up to date"
+        ResponseEntity<Task[]> list = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), Task[].class);
+        String listETag = list.getHeaders().getETag();
+        assertThat(listETag).isNotNull();
+
+        HttpHeaders conditional = getAuthHeaders();
+        conditional.setIfNoneMatch(listETag);
+        ResponseEntity<Task[]> notModified = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, conditional), Task[].class);
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        // Single task: update with the right If-Match, then the old ETag is stale
+        ResponseEntity<Task> single = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.GET, new HttpEntity<>(null, headers), Task.class);
+        String taskETag = single.getHeaders().getETag();
+        assertThat(taskETag).isNotNull();
+
+        HttpHeaders ifMatch = getAuthHeaders();
+        ifMatch.setIfMatch(taskETag);
+        Task changes = new Task();
+        changes.setDescription("Changed");
+        changes.setCompleted(true);
+        ResponseEntity<Task> updated = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.PUT, new HttpEntity<>(changes, ifMatch), Task.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(updated.getHeaders().getETag()).isNotEqualTo(taskETag);
+
+        ResponseEntity<String> conflict = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.PUT, new HttpEntity<>(changes, ifMatch), String.class);
+        assertThat(conflict.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // The write bumped the list version, so the old list ETag no longer matches
+        ResponseEntity<Task[]> changed = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, conditional), Task[].class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(listETag);
+    }
+
+    @Test
+    void testCaches_ShouldServeRepeatReadsButNothingOlderThanTheDatabase() {
+        HttpHeaders headers = getAuthHeaders();
+        Task task = new Task();
+        task.setDescription("Cached");
+        ResponseEntity<Task> created = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class);
+        assertThat(created.getBody()).isNotNull();
+        Long id = created.getBody().getId();
+
+        // A repeated listing is answered from the page cache
+        ResponseEntity<TaskView[]> first = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class);
+        long hits = taskPageCache.getHitCount();
+        ResponseEntity<TaskView[]> again = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class);
+        assertThat(again.getBody()).containsExactly(first.getBody());
+        assertThat(taskPageCache.getHitCount()).isEqualTo(hits + 1);
+
+        // Another user's write leaves this user's cached pages alone
+        User otherUser = new User();
+        otherUser.setUsername("otheruser");
+        otherUser.setPassword("irrelevant");
+        otherUser.setRole("USER");
+        otherUser = userRepository.save(otherUser);
+        HttpHeaders otherHeaders = new HttpHeaders();
+        otherHeaders.setBearerAuth(jwtService.generateToken(org.springframework.security.core.userdetails.User.builder()
+                .username(otherUser.getUsername()).password(otherUser.getPassword()).roles(otherUser.getRole()).build()));
+        Task theirs = new Task();
+        theirs.setDescription("Theirs");
+        restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(theirs, otherHeaders), Task.class);
+        restTemplate.exchange("/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class);
+        assertThat(taskPageCache.getHitCount()).isEqualTo(hits + 2);
+
+        // The task sits in this node's second-level cache when "another node" changes it (and bumps the list
+        // version, as every write does)
+        assertThat(taskRepository.findById(id)).isPresent();
+        assertThat(entityManagerFactory.getCache().contains(Task.class, id)).isTrue();
+        jdbcTemplate.update("UPDATE task SET description = 'Changed elsewhere', version = version + 1 WHERE id = ?", id);
+        jdbcTemplate.update("UPDATE task_list_version SET version = version + 1 WHERE user_id = ?", testUser.getId());
+
+        ResponseEntity<TaskView[]> listed = restTemplate.exchange(
+                "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class);
+        assertThat(listed.getBody()).extracting(TaskView::description).containsExactly("Changed elsewhere");
+        assertThat(listed.getHeaders().getETag()).isNotEqualTo(first.getHeaders().getETag());
+        ResponseEntity<Task> single = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.GET, new HttpEntity<>(null, headers), Task.class);
+        assertThat(single.getBody()).isNotNull();
+        assertThat(single.getBody().getDescription()).isEqualTo("Changed elsewhere");
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM task WHERE id = ?", Long.class, id);
+        assertThat(single.getHeaders().getETag()).isEqualTo("\"task-" + id + "-" + version + "\"");
+
+        // Our own native UPDATE must not leave the old task or the old listing behind either
+        Task changes = new Task();
+        changes.setDescription("Changed");
+        changes.setCompleted(true);
+        restTemplate.exchange("/api/tasks/" + id, HttpMethod.PUT, new HttpEntity<>(changes, headers), Task.class);
+        assertThat(taskRepository.findById(id)).get().extracting(Task::getDescription).isEqualTo("Changed");
+        assertThat(restTemplate.exchange("/api/tasks/search?completed=true", HttpMethod.GET,
+                new HttpEntity<>(null, headers), TaskView[].class).getBody())
+                .extracting(TaskView::description).containsExactly("Changed");
+
+        // Same for the soft delete, even once delta sync has run
+        restTemplate.exchange("/api/tasks/" + id, HttpMethod.DELETE, new HttpEntity<>(null, headers), Void.class);
+        restTemplate.exchange("/api/tasks/changes", HttpMethod.GET, new HttpEntity<>(null, headers), TaskChanges.class);
+        ResponseEntity<String> gone = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(gone.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(taskRepository.findById(id)).isEmpty();
+        assertThat(restTemplate.exchange("/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class)
+                .getBody()).isEmpty();
+    }
+
+    @Test
+    void testSearchTasks_ShouldRankMatchesAndPageThroughThem() {
+        HttpHeaders headers = getAuthHeaders();
+        for (String description : new String[]{"Buy milk", "Movie night: pick a movie", "Return the movie", "Buy movie tickets"}) {
+            Task task = new Task();
+            task.setDescription(description);
+            restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class);
+        }
+        // Neither a deleted task nor somebody else's may show up
+        Task deleted = new Task();
+        deleted.setDescription("Old movie");
+        Long deletedId = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(deleted, headers), Task.class).getBody().getId();
+        restTemplate.exchange("/api/tasks/" + deletedId, HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
+        User otherUser = new User();
+        otherUser.setUsername("otheruser");
+        otherUser.setPassword("irrelevant");
+        otherUser.setRole("USER");
+        otherUser = userRepository.save(otherUser);
+        Task foreign = new Task();
+        foreign.setDescription("Their movie");
+        foreign.setUser(otherUser);
+        taskRepository.save(foreign);
+
+        // A prefix is enough; the description mentioning it twice ranks first, ties go by id
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = "/api/tasks/search?q=MOV&limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            ResponseEntity<TaskView[]> response = restTemplate.exchange(
+                    url, HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            for (TaskView task : response.getBody()) {
+                seen.add(task.description());
+            }
+            cursor = response.getHeaders().getFirst(TaskController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+        assertThat(pages).isEqualTo(2);
+        assertThat(seen).containsExactly("Movie night: pick a movie", "Return the movie", "Buy movie tickets");
+
+        // Every word has to match; punctuation is just a separator, never query syntax
+        ResponseEntity<TaskView[]> both = restTemplate.exchange(
+                "/api/tasks/search?q=buy, (movie)!", HttpMethod.GET, new HttpEntity<>(null, headers), TaskView[].class);
+        assertThat(both.getBody()).extracting(TaskView::description).containsExactly("Buy movie tickets");
+
+        ResponseEntity<String> noWords = restTemplate.exchange(
+                "/api/tasks/search?q=!!", HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(noWords.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void testGetStats_ShouldFollowEveryKindOfWrite() {
+        HttpHeaders headers = getAuthHeaders();
+        Task open = new Task();
+        open.setDescription("Open");
+        Long openId = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(open, headers), Task.class).getBody().getId();
+        Task done = new Task();
+        done.setDescription("Done from the start");
+        done.setCompleted(true);
+        Long doneId = restTemplate.exchange(
+                "/api/tasks", HttpMethod.POST, new HttpEntity<>(done, headers), Task.class).getBody().getId();
+
+        // Complete the open one, then send the same update again: the second one changes nothing
+        Task complete = new Task();
+        complete.setDescription("Open");
+        complete.setCompleted(true);
+        restTemplate.exchange("/api/tasks/" + openId, HttpMethod.PUT, new HttpEntity<>(complete, headers), Task.class);
+        restTemplate.exchange("/api/tasks/" + openId, HttpMethod.PUT, new HttpEntity<>(complete, headers), Task.class);
+
+        // A batch: one new open task, reopen one, delete the other
+        List<TaskBatchOperation> operations = List.of(
+                new TaskBatchOperation(TaskBatchOperation.Type.CREATE, null, "From a batch", false),
+                new TaskBatchOperation(TaskBatchOperation.Type.UPDATE, openId, "Reopened", false),
+                new TaskBatchOperation(TaskBatchOperation.Type.DELETE, doneId, null, null));
+        restTemplate.exchange("/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(operations, headers), String.class);
+
+        ResponseEntity<TaskStatistics> stats = restTemplate.exchange(
+                "/api/tasks/stats?days=3", HttpMethod.GET, new HttpEntity<>(null, headers), TaskStatistics.class);
+        assertThat(stats.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(stats.getBody()).isNotNull();
+        assertThat(stats.getBody().total()).isEqualTo(2);
+        assertThat(stats.getBody().completed()).isZero();
+        assertThat(stats.getBody().open()).isEqualTo(2);
+        // Two completions happened today (created completed + completed by the update); reopening doesn't undo them
+        assertThat(stats.getBody().daily()).extracting(TaskStatistics.Day::completed).containsExactly(0L, 0L, 2L);
+        assertThat(stats.getBody().daily().get(2).date()).isEqualTo(LocalDate.now(ZoneOffset.UTC));
+
+        // A failed write leaves the counts alone
+        restTemplate.exchange("/api/tasks/" + doneId, HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
+        TaskStatistics after = restTemplate.exchange(
+                "/api/tasks/stats", HttpMethod.GET, new HttpEntity<>(null, headers), TaskStatistics.class).getBody();
+        assertThat(after).isEqualTo(new TaskStatistics(2, 0, 2, null));
+    }
+
+    @Test
+    void testGetAllTasks_ShouldNegotiateCompressionAndFormat() throws Exception {
+        HttpHeaders headers = getAuthHeaders();
+        List<TaskBatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            operations.add(new TaskBatchOperation(TaskBatchOperation.Type.CREATE, null, "Compressible task " + i, i % 2 == 0));
+        }
+        restTemplate.exchange("/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(operations, headers), String.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<TaskView> expected = objectMapper.readValue(restTemplate.exchange(
+                        "/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), String.class).getBody(),
+                new TypeReference<List<TaskView>>() {});
+        assertThat(expected).hasSize(50);
+
+        // Raw HTTP: the test RestTemplate would undo the compression before we could see it
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest.Builder list = HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + "/api/tasks"))
+                .header("Authorization", headers.getFirst("Authorization"));
+
+        HttpResponse<byte[]> gzip = client.send(list.copy().header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(gzip.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(gzip.headers().allValues("Vary")).anyMatch(vary -> vary.contains("Accept-Encoding"));
+        assertThat(gzip.headers().firstValue("ETag")).hasValueSatisfying(etag -> assertThat(etag).startsWith("W/"));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertThat(objectMapper.readValue(in, new TypeReference<List<TaskView>>() {})).isEqualTo(expected);
+        }
+
+        // The weakened ETag still revalidates
+        HttpResponse<byte[]> notModified = client.send(list.copy().header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzip.headers().firstValue("ETag").orElseThrow()).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(notModified.statusCode()).isEqualTo(304);
+
+        HttpResponse<byte[]> brotli = client.send(list.copy().header("Accept-Encoding", "gzip, deflate, br").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(brotli.headers().firstValue("Content-Encoding")).hasValue("br");
+        Brotli4jLoader.ensureAvailability();
+        try (InputStream in = new BrotliInputStream(new ByteArrayInputStream(brotli.body()))) {
+            assertThat(objectMapper.readValue(in, new TypeReference<List<TaskView>>() {})).isEqualTo(expected);
+        }
+        assertThat(brotli.body().length).isLessThan(gzip.body().length);
+
+        // Binary formats, picked by Accept (and compressed all the same)
+        HttpResponse<byte[]> cbor = client.send(list.copy().header("Accept", "application/cbor").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(cbor.headers().firstValue("Content-Type")).hasValue("application/cbor");
+        assertThat(cbor.headers().allValues("Vary")).anyMatch(vary -> vary.contains("Accept"));
+        assertThat(new CBORMapper().readValue(cbor.body(), new TypeReference<List<TaskView>>() {})).isEqualTo(expected);
+
+        HttpResponse<byte[]> smile = client.send(list.copy().header("Accept", "application/x-jackson-smile")
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(smile.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(smile.body()))) {
+            assertThat(new SmileMapper().readValue(in, new TypeReference<List<TaskView>>() {})).isEqualTo(expected);
+        }
+
+        // Below the threshold: sent as it is
+        HttpResponse<String> small = client.send(HttpRequest.newBuilder(
+                        URI.create(restTemplate.getRootUri() + "/api/tasks/" + expected.get(0).id()))
+                .header("Authorization", headers.getFirst("Authorization"))
+                .header("Accept-Encoding", "gzip, br").build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(small.statusCode()).isEqualTo(200);
+        assertThat(small.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(small.headers().firstValue("ETag")).hasValueSatisfying(etag -> assertThat(etag).startsWith("\"task-"));
+        assertThat(small.body()).contains("Compressible task");
+    }
+
+    @Test
+    void testUpdateTask_ShouldAcceptTheWeakETagOfACompressedTask() throws Exception {
+        HttpHeaders headers = getAuthHeaders();
+        // Control characters are escaped in JSON, six bytes each: the description fits the column,
+        // its JSON is over the 1 KB threshold
+        Task task = new Task();
+        task.setDescription("Big" + "\u0001".repeat(200));
+        Long id = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class)
+                .getBody().getId();
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create(restTemplate.getRootUri() + "/api/tasks/" + id);
+        HttpResponse<byte[]> compressed = client.send(HttpRequest.newBuilder(uri)
+                .header("Authorization", headers.getFirst("Authorization"))
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(compressed.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        String etag = compressed.headers().firstValue("ETag").orElseThrow();
+        assertThat(etag).startsWith("W/\"task-" + id + "-");
+
+        // The weak tag is still this exact version of the task: the conditional update goes through...
+        HttpRequest.Builder update = HttpRequest.newBuilder(uri)
+                .header("Authorization", headers.getFirst("Authorization"))
+                .header("Content-Type", "application/json")
+                .header("If-Match", etag)
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"description\":\"Shorter\",\"completed\":true}"));
+        assertThat(client.send(update.build(), HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(200);
+        // ...once: after that, it names an old version
+        assertThat(client.send(update.build(), HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(412);
+    }
+
+    @Test
+    void testStaticUi_ShouldBeCacheableAndPrecompressed() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+
+        // The entry page: revalidated every time, which the ETag makes cheap. Not touched by the security chain,
+        // whose headers would forbid caching altogether
+        HttpResponse<String> page = client.send(HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + "/")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(page.statusCode()).isEqualTo(200);
+        assertThat(page.headers().firstValue("Cache-Control")).hasValue("no-cache");
+        assertThat(page.headers().firstValue("Pragma")).isEmpty();
+        assertThat(page.headers().firstValue("X-Frame-Options")).hasValue("DENY");
+        String etag = page.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> notModified = client.send(HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + "/index.html"))
+                .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(notModified.statusCode()).isEqualTo(304);
+
+        // The scripts it loads have fingerprinted names: cached for good, and sent as built (brotli)
+        Matcher script = Pattern.compile("src=\"(/assets/app\\.[0-9a-f]{12}\\.js)\"").matcher(page.body());
+        assertThat(script.find()).isTrue();
+        HttpResponse<byte[]> asset = client.send(HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + script.group(1)))
+                .header("Accept-Encoding", "gzip, br").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(asset.statusCode()).isEqualTo(200);
+        assertThat(asset.headers().firstValue("Content-Encoding")).hasValue("br");
+        assertThat(asset.headers().firstValue("Cache-Control")).hasValue("max-age=31536000, public, immutable");
+        Brotli4jLoader.ensureAvailability();
+        try (InputStream in = new BrotliInputStream(new ByteArrayInputStream(asset.body()))) {
+            assertThat(new String(in.readAllBytes())).contains("async function login()");
+        }
+
+        // Not even a missing file goes through the chain: none of its no-store headers on the 404
+        HttpResponse<String> missing = client.send(HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + "/assets/missing.js"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(missing.statusCode()).isEqualTo(404);
+        assertThat(missing.headers().firstValue("Cache-Control")).isEmpty();
+        assertThat(missing.headers().firstValue("Pragma")).isEmpty();
+
+        // An invalid token is none of the static files' business
+        HttpResponse<String> withBadToken = client.send(HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + "/"))
+                .header("Authorization", "Bearer not-a-jwt").build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(withBadToken.statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void testCreateTask_WithIdempotencyKey_ShouldCreateOnlyOnce() throws Exception {
+        HttpHeaders headers = getAuthHeaders();
+        headers.set("Idempotency-Key", "create-milk");
+        Task task = new Task();
+        task.setDescription("Buy milk");
+
+        ResponseEntity<Task> first = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(first.getHeaders().containsKey("Idempotent-Replayed")).isFalse();
+
+        // The retry gets the same response, and no second task
+        ResponseEntity<Task> retry = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(retry.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag());
+        assertThat(retry.getBody().getId()).isEqualTo(first.getBody().getId());
+        assertThat(taskRepository.count()).isEqualTo(1);
+
+        // Same key, different request: refused
+        Task other = new Task();
+        other.setDescription("Buy bread");
+        ResponseEntity<String> reused = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(other, headers), String.class);
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        // Duplicates sent at the same time collapse into one execution
+        headers.set("Idempotency-Key", "create-eggs");
+        Task eggs = new Task();
+        eggs.setDescription("Buy eggs");
+        List<CompletableFuture<ResponseEntity<Task>>> duplicates = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            duplicates.add(CompletableFuture.supplyAsync(() -> restTemplate.exchange(
+                    "/api/tasks", HttpMethod.POST, new HttpEntity<>(eggs, headers), Task.class)));
+        }
+        List<Long> ids = new ArrayList<>();
+        for (CompletableFuture<ResponseEntity<Task>> duplicate : duplicates) {
+            ResponseEntity<Task> response = duplicate.get(30, TimeUnit.SECONDS);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            ids.add(response.getBody().getId());
+        }
+        assertThat(ids).containsOnly(ids.get(0));
+        assertThat(taskRepository.count()).isEqualTo(2);
+
+        // A batch can be retried safely too
+        headers.set("Idempotency-Key", "batch-1");
+        List<TaskBatchOperation> operations = List.of(
+                new TaskBatchOperation(TaskBatchOperation.Type.CREATE, null, "From a batch", false));
+        ResponseEntity<String> batch = restTemplate.exchange(
+                "/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(operations, headers), String.class);
+        ResponseEntity<String> batchRetry = restTemplate.exchange(
+                "/api/tasks/batch", HttpMethod.POST, new HttpEntity<>(operations, headers), String.class);
+        assertThat(batchRetry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(batchRetry.getBody()).isEqualTo(batch.getBody());
+        assertThat(taskRepository.count()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_key", Long.class)).isEqualTo(3);
+
+        // Replays show up in the scrape next to the executed requests
+        String scrape = restTemplate.getForObject("http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+        assertThat(scrape)
+                .contains("idempotency_requests_total{result=\"executed\",source=\"none\"}")
+                .contains("idempotency_requests_total{result=\"replayed\",source=\"memory\"}");
+    }
+
+    @Test
+    void testUpdateTask_RespondAsync_ShouldQueueTheToggleUntilTheNextRead() {
+        HttpHeaders headers = getAuthHeaders();
+        Task task = new Task();
+        task.setDescription("Water the plants");
+        Long id = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(task, headers), Task.class)
+                .getBody().getId();
+
+        // A checkbox click: same text, new status
+        HttpHeaders asyncHeaders = getAuthHeaders();
+        asyncHeaders.set("Prefer", "respond-async");
+        Task click = new Task();
+        click.setDescription("Water the plants");
+        click.setCompleted(true);
+        ResponseEntity<Task> accepted = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.PUT, new HttpEntity<>(click, asyncHeaders), Task.class);
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(accepted.getHeaders().getFirst("Preference-Applied")).isEqualTo("respond-async");
+        assertThat(accepted.getBody()).isNotNull();
+        assertThat(accepted.getBody().isCompleted()).isTrue();
+
+        // Not in the database yet (the flush interval is an hour in tests)...
+        assertThat(jdbcTemplate.queryForObject("SELECT completed FROM task WHERE id = ?", Boolean.class, id)).isFalse();
+
+        // ...but the user's next request sees it, and writes it
+        ResponseEntity<Task> read = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.GET, new HttpEntity<>(null, headers), Task.class);
+        assertThat(read.getBody().isCompleted()).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT completed FROM task WHERE id = ?", Boolean.class, id)).isTrue();
+        TaskStatistics stats = restTemplate.exchange(
+                "/api/tasks/stats?days=0", HttpMethod.GET, new HttpEntity<>(null, headers), TaskStatistics.class).getBody();
+        assertThat(stats).isEqualTo(new TaskStatistics(1, 1, 0, null));
+
+        // This node still has the task cached when "another node" changes its text: the click no longer
+        // matches the stored text, so it is not queued but applied as a normal update
+        assertThat(taskRepository.findById(id)).isPresent();
+        jdbcTemplate.update("UPDATE task SET description = 'Water the garden', version = version + 1 WHERE id = ?", id);
+        ResponseEntity<Task> stale = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.PUT, new HttpEntity<>(click, asyncHeaders), Task.class);
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        // Changing the text as well is a normal synchronous update
+        Task edit = new Task();
+        edit.setDescription("Water the plants twice");
+        edit.setCompleted(false);
+        ResponseEntity<Task> updated = restTemplate.exchange(
+                "/api/tasks/" + id, HttpMethod.PUT, new HttpEntity<>(edit, asyncHeaders), Task.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(updated.getHeaders().getETag()).isNotNull();
+    }
+
+    @Test
+    void testGetChanges_ShouldOnlyReturnWhatChangedSinceCursor() {
+        HttpHeaders headers = getAuthHeaders();
+        Task keep = new Task();
+        keep.setDescription("Keep me");
+        Task drop = new Task();
+        drop.setDescription("Drop me");
+        Long keepId = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(keep, headers), Task.class)
+                .getBody().getId();
+        Long dropId = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(drop, headers), Task.class)
+                .getBody().getId();
+
+        // Initial sync: everything, plus a cursor for next time
+        TaskChanges initial = restTemplate.exchange(
+                "/api/tasks/changes", HttpMethod.GET, new HttpEntity<>(null, headers), TaskChanges.class).getBody();
+        assertThat(initial).isNotNull();
+        assertThat(initial.changed()).extracting(TaskView::id).containsExactly(keepId, dropId);
+        assertThat(initial.deleted()).isEmpty();
+        assertThat(initial.hasMore()).isFalse();
+
+        // Nothing happened since: nothing comes back
+        TaskChanges none = restTemplate.exchange(
+                "/api/tasks/changes?since=" + initial.cursor(), HttpMethod.GET, new HttpEntity<>(null, headers), TaskChanges.class).getBody();
+        assertThat(none.changed()).isEmpty();
+        assertThat(none.deleted()).isEmpty();
+        assertThat(none.cursor()).isEqualTo(initial.cursor());
+
+        // One update and one delete: exactly those two come back
+        Task changes = new Task();
+        changes.setDescription("Kept and done");
+        changes.setCompleted(true);
+        restTemplate.exchange("/api/tasks/" + keepId, HttpMethod.PUT, new HttpEntity<>(changes, headers), Task.class);
+        restTemplate.exchange("/api/tasks/" + dropId, HttpMethod.DELETE, new HttpEntity<>(null, headers), String.class);
+
+        TaskChanges delta = restTemplate.exchange(
+                "/api/tasks/changes?since=" + initial.cursor(), HttpMethod.GET, new HttpEntity<>(null, headers), TaskChanges.class).getBody();
+        assertThat(delta.changed()).extracting(TaskView::description).containsExactly("Kept and done");
+        assertThat(delta.deleted()).containsExactly(dropId);
+
+        // The deleted task is gone for every other endpoint
+        ResponseEntity<String> gone = restTemplate.exchange(
+                "/api/tasks/" + dropId, HttpMethod.GET, new HttpEntity<>(null, headers), String.class);
+        assertThat(gone.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void testStreamTasks_ShouldPushCommittedChanges() throws Exception {
+        HttpHeaders headers = getAuthHeaders();
+        HttpRequest subscribe = HttpRequest.newBuilder(URI.create(restTemplate.getRootUri() + "/api/tasks/stream"))
+                .header("Authorization", headers.getFirst("Authorization"))
+                .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE)
+                .build();
+        // Resolves as soon as the response headers arrive; the body stays open
+        HttpResponse<Stream<String>> stream = HttpClient.newHttpClient()
+                .sendAsync(subscribe, HttpResponse.BodyHandlers.ofLines())
+                .get(10, TimeUnit.SECONDS);
+        assertThat(stream.statusCode()).isEqualTo(200);
+
+        Task newTask = new Task();
+        newTask.setDescription("Pushed to the stream");
+        Long id = restTemplate.exchange("/api/tasks", HttpMethod.POST, new HttpEntity<>(newTask, headers), Task.class)
+                .getBody().getId();
+
+        // Read until the data line that follows the "created" event (reads block, so give up after a while)
+        List<String> lines = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            Iterator<String> body = stream.body().iterator();
+            while (body.hasNext()) {
+                String line = body.next();
+                lines.add(line);
+                if (line.startsWith("data:") && lines.contains("event:created")) break;
+            }
+        });
+        try {
+            reader.get(10, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Fall through: the assertions below report what did arrive
+        } finally {
+            stream.body().close();
+        }
+
+        assertThat(lines).contains("event:created");
+        assertThat(lines.get(lines.size() - 1))
+                .contains("\"id\":" + id)
+                .contains("Pushed to the stream");
+    }
+
+    @Test
+    void testPrometheusEndpoint_ShouldExposeRequestAndQueryMetrics() {
+        HttpHeaders headers = getAuthHeaders();
+        restTemplate.exchange("/api/tasks", HttpMethod.GET, new HttpEntity<>(null, headers), Task[].class);
+
+        // Separate port, no token needed
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("http_server_requests_seconds_bucket")
+                .contains("http_server_requests_sql_statements_count{method=\"GET\",uri=\"/api/tasks\"}")
+                .contains("spring_data_repository_invocations_seconds_bucket")
+                .contains("jwt_verification_seconds_count")
+                .contains("security_password_hashing_seconds_count");
+        // The list request ran at least one statement (the version lookup + the page query), and it was counted
+        assertThat(scrape.getBody().lines()
+                .filter(line -> line.startsWith("http_server_requests_sql_statements_sum{method=\"GET\",uri=\"/api/tasks\"}"))
+                .map(line -> Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+                .findFirst())
+                .hasValueSatisfying(sum -> assertThat(sum).isGreaterThan(0));
+    }
 }
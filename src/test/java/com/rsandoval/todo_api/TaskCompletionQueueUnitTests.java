@@ -0,0 +1,95 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.service.TaskCompletionQueue;
+import com.rsandoval.todo_api.service.TaskService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TaskCompletionQueueUnitTests {
+
+    @TempDir
+    Path directory;
+
+    private TaskCompletionQueue queue(TaskService taskService, Path logFile) {
+        return new TaskCompletionQueue(taskService, true, logFile, Duration.ofHours(1), 500, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testFlush_ShouldWriteOnlyTheLatestToggleOfEachTask() {
+        TaskService taskService = Mockito.mock(TaskService.class);
+        TaskCompletionQueue queue = queue(taskService, directory.resolve("completions.log"));
+
+        queue.submit(1L, 10L, true);
+        queue.submit(1L, 10L, false);
+        queue.submit(1L, 11L, true);
+        queue.submit(2L, 20L, true);
+        assertThat(queue.pendingCount()).isEqualTo(3);
+
+        queue.flush(1L);
+        verify(taskService).applyCompletions(1L, Map.of(10L, false, 11L, true));
+        verify(taskService, never()).applyCompletions(Mockito.eq(2L), anyMap());
+        assertThat(queue.pendingCount()).isEqualTo(1);
+
+        // Nothing left for that user: no second write
+        queue.flush(1L);
+        verify(taskService).applyCompletions(Mockito.eq(1L), anyMap());
+    }
+
+    @Test
+    void testRestart_ShouldReplayWhatWasNotWritten() {
+        Path logFile = directory.resolve("completions.log");
+        TaskService down = Mockito.mock(TaskService.class);
+        Mockito.when(down.applyCompletions(Mockito.eq(2L), anyMap())).thenThrow(new IllegalStateException("database down"));
+        TaskCompletionQueue before = queue(down, logFile);
+        before.submit(1L, 10L, true);
+        before.submit(2L, 20L, true);
+        before.submit(2L, 21L, false);
+        // User 1 gets written, user 2 doesn't
+        before.stop();
+        verify(down).applyCompletions(1L, Map.of(10L, true));
+
+        TaskService up = Mockito.mock(TaskService.class);
+        TaskCompletionQueue after = queue(up, logFile);
+        assertThat(after.pendingCount()).isEqualTo(2);
+        after.flush(1L);
+        verify(up, never()).applyCompletions(Mockito.eq(1L), anyMap());
+        after.flush(2L);
+        verify(up).applyCompletions(2L, Map.of(20L, true, 21L, false));
+        assertThat(after.pendingCount()).isZero();
+        after.stop();
+
+        // Everything was written: nothing to replay any more
+        TaskCompletionQueue again = queue(Mockito.mock(TaskService.class), logFile);
+        assertThat(again.pendingCount()).isZero();
+        again.stop();
+    }
+
+    @Test
+    void testReplay_ShouldIgnoreALineCutShortByACrash() throws IOException {
+        Path logFile = directory.resolve("completions.log");
+        Files.writeString(logFile, "T 1 1 10 1\nT 2 1 11 1\nA 1\nT 3 1 1");
+
+        TaskService taskService = Mockito.mock(TaskService.class);
+        TaskCompletionQueue queue = queue(taskService, logFile);
+        assertThat(queue.pendingCount()).isEqualTo(1);
+
+        // New toggles continue after the highest seq that was read
+        queue.submit(1L, 12L, false);
+        queue.flush(1L);
+        verify(taskService).applyCompletions(1L, Map.of(11L, true, 12L, false));
+        queue.stop();
+    }
+}
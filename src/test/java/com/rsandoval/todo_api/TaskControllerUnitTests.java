@@ -2,18 +2,33 @@ package com.rsandoval.todo_api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rsandoval.todo_api.controller.TaskController;
+import com.rsandoval.todo_api.dto.TaskCursor;
+import com.rsandoval.todo_api.dto.TaskView;
 import com.rsandoval.todo_api.model.Task;
 import com.rsandoval.todo_api.model.User;
 import com.rsandoval.todo_api.repository.TaskRepository;
 import com.rsandoval.todo_api.repository.UserRepository;
 import com.rsandoval.todo_api.service.JwtService;
+import com.rsandoval.todo_api.service.IdempotencyService;
+import com.rsandoval.todo_api.service.TaskBatchService;
+import com.rsandoval.todo_api.service.TaskCompletionQueue;
+import com.rsandoval.todo_api.service.TaskCacheInvalidator;
+import com.rsandoval.todo_api.service.TaskEventBroadcaster;
+import com.rsandoval.todo_api.service.TaskExportService;
+import com.rsandoval.todo_api.service.TaskPageCache;
+import com.rsandoval.todo_api.service.TaskSearchService;
+import com.rsandoval.todo_api.service.TaskService;
+import com.rsandoval.todo_api.service.TaskStatsService;
+import com.rsandoval.todo_api.service.TaskVersionService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.data.domain.Sort;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -24,6 +39,7 @@ import java.util.Optional;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +48,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 // Testing only the TaskController
 @WebMvcTest(TaskController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(TaskService.class) // The real write logic, running against the mocked repositories
 class TaskControllerUnitTests {
 
     // Spring will automatically inject ("autowire") our "fake postman" (MockMvc)
@@ -48,9 +65,45 @@ class TaskControllerUnitTests {
     @MockitoBean
     private JwtService jwtService;
 
+    @MockitoBean
+    private TaskExportService taskExportService;
+
+    @MockitoBean
+    private TaskBatchService taskBatchService;
+
+    @MockitoBean
+    private TaskVersionService taskVersionService;
+
+    @MockitoBean
+    private TaskEventBroadcaster taskEventBroadcaster;
+
+    @MockitoBean
+    private TaskCacheInvalidator taskCacheInvalidator;
+
+    @MockitoBean
+    private TaskStatsService taskStatsService;
+
+    @MockitoBean
+    private TaskSearchService taskSearchService;
+
+    @MockitoBean
+    private TaskCompletionQueue taskCompletionQueue;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private TaskPageCache taskPageCache;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    // A mocked List-returning method answers an empty list; every page has to be a miss instead
+    @BeforeEach
+    void emptyPageCache() {
+        Mockito.when(taskPageCache.get(ArgumentMatchers.any())).thenReturn(null);
+    }
+
     private User mockUser() {
         User user = new User();
         user.setId(1L);
@@ -67,17 +120,11 @@ class TaskControllerUnitTests {
     void testUpdateTask_ShouldUpdateAndReturnTask() throws Exception{
         User user = mockUser();
         Long taskId = 1L;
-        // -- ARRANGE -- Simulate  1) 'existingTask': in the database
-        Task existingTask = new Task();
-        existingTask.setId(taskId);
-        existingTask.setDescription("Finish Rooney Drawing");
-        existingTask.setCompleted(false);
-        existingTask.setUser(user);
-        // 2) an 'updatedTask': new data being sent
+        // -- ARRANGE -- Simulate 1) an 'updatedTask': new data being sent
         Task updatedTask = new Task();
         updatedTask.setDescription("Finish Rooney Drawing First Draft");
         updatedTask.setCompleted(true);
-        // 3) the final object we expect the 'save' method to return
+        // 2) the row we expect the conditional update to return
         Task savedTask = new Task();
         savedTask.setId(taskId);
         savedTask.setDescription("Finish Rooney Drawing First Draft");
@@ -87,12 +134,9 @@ class TaskControllerUnitTests {
         objectMapper = new ObjectMapper();
         String updatedTaskAsJson = objectMapper.writeValueAsString(updatedTask);
 
-        // Stub 1: WHEN findById(1L) is called, THEN return our existingTask
-        Mockito.when(taskRepository.findById(taskId))
-                .thenReturn(Optional.of(existingTask)); // Must wrap in Optional.of() because that is what JpaRepository returns
-        // Stub 2: When save() is called with *any* Task, THEN return our final savedTask
-        Mockito.when(taskRepository.save(ArgumentMatchers.any(Task.class)))
-                .thenReturn(savedTask);
+        // Stub: WHEN the owner-checked update runs for user 1, THEN return the updated row
+        Mockito.when(taskRepository.updateByIdAndUserId(taskId, user.getId(), "Finish Rooney Drawing First Draft", true, 0L))
+                .thenReturn(Optional.of(savedTask));
 
         // -- ACT -- Perform a PUT request to "/api/tasks/1" with the new JSON
         mockMvc.perform(put("/api/tasks/" + taskId)
@@ -104,28 +148,60 @@ class TaskControllerUnitTests {
                 .andExpect(jsonPath("$.id", is(1)))
                 .andExpect(jsonPath("$.description", is("Finish Rooney Drawing First Draft")))
                 .andExpect(jsonPath("$.completed", is(true)));
+        // No separate load + save anymore
+        Mockito.verify(taskRepository, Mockito.never()).findById(ArgumentMatchers.anyLong());
+        Mockito.verify(taskRepository, Mockito.never()).save(ArgumentMatchers.any(Task.class));
     }
 
     @Test
     @WithMockUser(username = "testuser")
-    void testDeleteTask_ShouldReturnOkAndCallDeleteById() throws Exception {
+    void testUpdateTask_WhenOwnedBySomeoneElse_ShouldReturn403() throws Exception {
+        User user = mockUser();
+        // Nothing was updated, but the task does exist
+        Mockito.when(taskRepository.updateByIdAndUserId(
+                        ArgumentMatchers.eq(5L), ArgumentMatchers.eq(user.getId()),
+                        ArgumentMatchers.any(), ArgumentMatchers.anyBoolean(), ArgumentMatchers.anyLong()))
+                .thenReturn(Optional.empty());
+        Mockito.when(taskRepository.existsById(5L)).thenReturn(true);
+
+        mockMvc.perform(put("/api/tasks/5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Not mine\",\"completed\":true}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testDeleteTask_ShouldReturnOkAndDeleteInOneStatement() throws Exception {
         // -- ARRANGE -- Define the ID we want to delete
         User user = mockUser();
-        Task task = new Task();
-        task.setId(1L);
-        task.setUser(user);
+        Long taskId = 1L;
 
-        Mockito.when(taskRepository.findById(task.getId())).thenReturn(Optional.of(task));
-        // Stubbing a void method; Prevents the mock from throwing an error.
-        Mockito.doNothing().when(taskRepository).deleteById(task.getId());
+        // Getting a row back means it existed and belonged to the user
+        Mockito.when(taskRepository.markDeletedByIdAndUserId(taskId, user.getId(), 0L)).thenReturn(Optional.of(true));
 
         // -- ACT -- Perform a DELETE request to "api/tasks/1"
-        mockMvc.perform(delete("/api/tasks/" + task.getId()))
+        mockMvc.perform(delete("/api/tasks/" + taskId))
                 .andExpect(status().isOk());
 
         // -- ASSERT -- Verify the interaction
-        // that mock repository's deleteById method was called exactly 1 time with the correct ID
-        Mockito.verify(taskRepository, Mockito.times(1)).deleteById(task.getId());
+        // that the owner-checked delete ran exactly once, with no lookup before it
+        Mockito.verify(taskRepository, Mockito.times(1)).markDeletedByIdAndUserId(taskId, user.getId(), 0L);
+        Mockito.verify(taskRepository, Mockito.never()).findById(ArgumentMatchers.anyLong());
+        // and the cached copy of the task was dropped, and the counts adjusted
+        Mockito.verify(taskCacheInvalidator).invalidate(taskId);
+        Mockito.verify(taskStatsService).recordDeleted(user.getId(), true);
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testDeleteTask_WhenNotFound_ShouldReturn404() throws Exception {
+        User user = mockUser();
+        Mockito.when(taskRepository.markDeletedByIdAndUserId(999L, user.getId(), 0L)).thenReturn(Optional.empty());
+        Mockito.when(taskRepository.existsById(999L)).thenReturn(false);
+
+        mockMvc.perform(delete("/api/tasks/999"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -168,7 +244,7 @@ class TaskControllerUnitTests {
     void testGetTask_WhenNotFound_ShouldReturn404() throws Exception {
         mockUser();
         Long nonExistentId = 999L;
-        Mockito.when(taskRepository.findById(nonExistentId))
+        Mockito.when(taskRepository.findUncachedById(nonExistentId))
                 .thenReturn(Optional.empty());
 
         mockMvc.perform(get("/api/tasks/" + nonExistentId))
@@ -188,8 +264,8 @@ class TaskControllerUnitTests {
         savedTask.setCompleted(true);
         savedTask.setUser(user);
 
-        // Train Mockito; Stub findById()
-        Mockito.when(taskRepository.findById(taskId)).thenReturn(Optional.of(savedTask));
+        // Train Mockito; Stub findUncachedById()
+        Mockito.when(taskRepository.findUncachedById(taskId)).thenReturn(Optional.of(savedTask));
 
         // -- ACT --
         mockMvc.perform(get("/api/tasks/" + taskId))
@@ -206,14 +282,14 @@ class TaskControllerUnitTests {
     void testGetTasksByStatus_ShouldReturnCompletedTasks() throws Exception {
         // -- ARRANGE -- Create mock data
         User user = mockUser();
-        Task task1 = new Task();
-        task1.setId(1L);
-        task1.setDescription("Completed task");
-        task1.setCompleted(true);
-        task1.setUser(user);
+        TaskView task1 = new TaskView(1L, "Completed task", true);
 
         // Teach mock repository
-        Mockito.when(taskRepository.findByUserIdAndCompleted(user.getId(),true))
+        Mockito.when(taskRepository.findPageByUserIdAndCompleted(
+                ArgumentMatchers.eq(user.getId()),
+                ArgumentMatchers.eq(true),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Limit.class)))
                 .thenReturn(List.of(task1));
 
         // -- ACT -- Perform a GET request to the new endpoint
@@ -230,13 +306,13 @@ class TaskControllerUnitTests {
     @WithMockUser(username = "testuser")
     void testGetTasksByStatus_ShouldReturnIncompleteTasks() throws Exception {
         User user = mockUser();
-        Task task2 = new Task();
-        task2.setId(2L);
-        task2.setDescription("Incomplete task");
-        task2.setCompleted(false);
-        task2.setUser(user);
+        TaskView task2 = new TaskView(2L, "Incomplete task", false);
 
-        Mockito.when(taskRepository.findByUserIdAndCompleted(user.getId(), false))
+        Mockito.when(taskRepository.findPageByUserIdAndCompleted(
+                ArgumentMatchers.eq(user.getId()),
+                ArgumentMatchers.eq(false),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Limit.class)))
                 .thenReturn(List.of(task2));
 
         mockMvc.perform(get("/api/tasks/search?completed=false"))
@@ -252,17 +328,15 @@ class TaskControllerUnitTests {
     void testGetAllTasks_ShouldReturnListOfTasks() throws Exception {
         // -- ARRANGE-- Create fake data
         User user = mockUser();
-        Task task1 = new Task();
-        task1.setId(1L);
-        task1.setDescription("Read Dune Messiah");
-        task1.setCompleted(false);
-        task1.setUser(user);
+        TaskView task1 = new TaskView(1L, "Read Dune Messiah", false);
 
         // Teach the fake repository what to do
-        // WHEN taskRepository.findAll() is called, THEN return our fake list
-        Mockito.when(taskRepository.findByUserId(
+        // WHEN the first page is requested, THEN return our fake list
+        Mockito.when(taskRepository.findPageByUserId(
                 ArgumentMatchers.eq(user.getId()),
-                ArgumentMatchers.any(Sort.class)))
+                ArgumentMatchers.eq(false),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.any(Limit.class)))
                 .thenReturn(List.of(task1));
 
         // -- ACT -- Perform a fake GET request to API endpoint
@@ -274,4 +348,99 @@ class TaskControllerUnitTests {
                 .andExpect(jsonPath("$[0].completed", is(false)));
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetAllTasks_WhenMoreThanOnePage_ShouldReturnNextCursor() throws Exception {
+        User user = mockUser();
+        TaskView task1 = new TaskView(1L, "First", false);
+        TaskView task2 = new TaskView(2L, "Second", false);
+        TaskView task3 = new TaskView(3L, "Third", false);
+
+        // The controller asks for limit + 1 rows; getting all 3 back means there is another page
+        Mockito.when(taskRepository.findPageByUserId(
+                ArgumentMatchers.eq(user.getId()),
+                ArgumentMatchers.eq(false),
+                ArgumentMatchers.eq(0L),
+                ArgumentMatchers.eq(Limit.of(3))))
+                .thenReturn(List.of(task1, task2, task3));
+
+        mockMvc.perform(get("/api/tasks?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[1].description", is("Second")))
+                .andExpect(header().string(TaskController.NEXT_CURSOR_HEADER, new TaskCursor(false, 2L).encode()));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetAllTasks_WithCursor_ShouldContinueAfterIt() throws Exception {
+        User user = mockUser();
+        TaskView task = new TaskView(7L, "Done already", true);
+
+        Mockito.when(taskRepository.findPageByUserId(
+                ArgumentMatchers.eq(user.getId()),
+                ArgumentMatchers.eq(true),
+                ArgumentMatchers.eq(5L),
+                ArgumentMatchers.any(Limit.class)))
+                .thenReturn(List.of(task));
+
+        mockMvc.perform(get("/api/tasks?cursor=" + new TaskCursor(true, 5L).encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(header().doesNotExist(TaskController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetAllTasks_WithInvalidCursor_ShouldReturn400() throws Exception {
+        mockUser();
+
+        mockMvc.perform(get("/api/tasks?cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetAllTasks_WhenETagMatches_ShouldReturn304WithoutQueryingTasks() throws Exception {
+        User user = mockUser();
+        Mockito.when(taskVersionService.currentVersion(user.getId())).thenReturn(3L);
+
+        mockMvc.perform(get("/api/tasks").header("If-None-Match", "\"tasks-1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"tasks-1-3\""));
+
+        Mockito.verify(taskRepository, Mockito.never()).findPageByUserId(
+                ArgumentMatchers.any(), ArgumentMatchers.anyBoolean(), ArgumentMatchers.any(), ArgumentMatchers.any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testGetTask_WhenETagMatches_ShouldReturn304WithoutLoadingTask() throws Exception {
+        User user = mockUser();
+        Mockito.when(taskRepository.findVersionByIdAndUserId(1L, user.getId())).thenReturn(Optional.of(4L));
+
+        mockMvc.perform(get("/api/tasks/1").header("If-None-Match", "\"task-1-4\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(taskRepository, Mockito.never()).findById(ArgumentMatchers.anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void testUpdateTask_WhenIfMatchIsStale_ShouldReturn412() throws Exception {
+        User user = mockUser();
+        // The conditional update matched nothing, yet the task is there and belongs to the user
+        Mockito.when(taskRepository.updateByIdAndUserIdAndVersion(
+                        ArgumentMatchers.eq(1L), ArgumentMatchers.eq(user.getId()), ArgumentMatchers.eq(2L),
+                        ArgumentMatchers.any(), ArgumentMatchers.anyBoolean(), ArgumentMatchers.anyLong()))
+                .thenReturn(Optional.empty());
+        Mockito.when(taskRepository.findVersionByIdAndUserId(1L, user.getId())).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(put("/api/tasks/1")
+                        .header("If-Match", "\"task-1-2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"Too late\",\"completed\":true}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
 }
@@ -0,0 +1,32 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.service.TaskEventBroadcaster;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskEventBroadcasterUnitTests {
+
+    @Test
+    void testSubscribe_ShouldKeepTheCapUnderConcurrentSubscribers() throws Exception {
+        TaskEventBroadcaster broadcaster = new TaskEventBroadcaster(Runnable::run);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<?>> subscriptions = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                subscriptions.add(CompletableFuture.runAsync(() -> broadcaster.subscribe(1L), threads));
+            }
+            CompletableFuture.allOf(subscriptions.toArray(CompletableFuture[]::new)).get();
+        } finally {
+            threads.shutdown();
+        }
+        // The newest ten stay; every other one was closed to make room
+        assertThat(broadcaster.connectionCount()).isEqualTo(10);
+    }
+}
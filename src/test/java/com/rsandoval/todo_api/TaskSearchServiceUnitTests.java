@@ -0,0 +1,31 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.service.TaskSearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskSearchServiceUnitTests {
+
+    @Test
+    void testToTsQuery_ShouldLowercaseMixedCaseTheSameOnEveryHost() {
+        Locale original = Locale.getDefault();
+        try {
+            // The locale where "I".toLowerCase() is a dotless "ı"
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            assertThat(TaskSearchService.toTsQuery("IMPORTANT Movie!")).isEqualTo("important:* & movie:*");
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    void testToTsQuery_ShouldKeepOnlyWords() {
+        assertThat(TaskSearchService.toTsQuery("New mov! & | :*")).isEqualTo("new:* & mov:*");
+        assertThatThrownBy(() -> TaskSearchService.toTsQuery("!!")).isInstanceOf(ResponseStatusException.class);
+    }
+}
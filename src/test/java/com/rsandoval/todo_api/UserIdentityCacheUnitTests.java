@@ -0,0 +1,49 @@
+package com.rsandoval.todo_api;
+
+import com.rsandoval.todo_api.service.UserIdentityCache;
+import com.rsandoval.todo_api.service.UserIdentityCache.UserIdentity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserIdentityCacheUnitTests {
+
+    private static UserIdentity identity(String username) {
+        return new UserIdentity(1L, username, "$2a$10$hash", "USER");
+    }
+
+    @Test
+    void testCache_ShouldCountHitsMissesAndInvalidations() {
+        UserIdentityCache cache = new UserIdentityCache(10, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        assertThat(cache.get("alice")).isNull();
+        cache.put(identity("alice"));
+        assertThat(cache.get("alice")).isEqualTo(identity("alice"));
+
+        cache.invalidate("alice");
+        assertThat(cache.get("alice")).isNull();
+
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testCache_ShouldExpireAndStayBounded() throws InterruptedException {
+        UserIdentityCache expiring = new UserIdentityCache(10, Duration.ofMillis(1), new SimpleMeterRegistry());
+        expiring.put(identity("alice"));
+        Thread.sleep(5);
+        assertThat(expiring.get("alice")).isNull();
+        assertThat(expiring.getEvictionCount()).isEqualTo(1);
+
+        UserIdentityCache small = new UserIdentityCache(2, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        for (String name : new String[]{"a", "b", "c", "d"}) {
+            small.put(identity(name));
+        }
+        assertThat(small.size()).isLessThanOrEqualTo(2);
+        assertThat(small.getEvictionCount()).isGreaterThanOrEqualTo(2);
+    }
+}